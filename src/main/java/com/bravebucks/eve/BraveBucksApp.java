@@ -22,7 +22,6 @@ import java.net.InetAddress;
 import java.net.UnknownHostException;
 import java.util.Arrays;
 import java.util.Collection;
-import java.util.Collections;
 
 @ComponentScan
 @EnableAutoConfiguration(exclude = {MetricFilterAutoConfiguration.class, MetricRepositoryAutoConfiguration.class})
@@ -32,11 +31,11 @@ public class BraveBucksApp {
     private static final Logger log = LoggerFactory.getLogger(BraveBucksApp.class);
 
     private final Environment env;
-    private final DelayService delayService;
+    private final EsiRateLimiter esiRateLimiter;
 
-    public BraveBucksApp(Environment env, final DelayService delayService) {
+    public BraveBucksApp(Environment env, final EsiRateLimiter esiRateLimiter) {
         this.env = env;
-        this.delayService = delayService;
+        this.esiRateLimiter = esiRateLimiter;
     }
 
     /**
@@ -64,8 +63,8 @@ public class BraveBucksApp {
         final OkHttp3ClientHttpRequestFactory requestFactory = new OkHttp3ClientHttpRequestFactory();
         requestFactory.setReadTimeout(15_000);
         final RestTemplate restTemplate = new RestTemplate(requestFactory);
-        restTemplate.setInterceptors(Collections.singletonList(new XEsiInterceptor()));
-        restTemplate.setErrorHandler(new MyResponseErrorHandler(delayService));
+        restTemplate.setInterceptors(Arrays.asList(new XEsiInterceptor(), esiRateLimiter));
+        restTemplate.setErrorHandler(new MyResponseErrorHandler());
         return restTemplate;
     }
 
@@ -7,6 +7,10 @@ import org.slf4j.LoggerFactory;
 import org.springframework.http.HttpHeaders;
 import org.springframework.stereotype.Service;
 
+/**
+ * Tracks the ESI error budget from the {@code x-esi-error-limit-*} headers of every ESI response, see
+ * {@link EsiRateLimiter}.
+ */
 @Service
 public class DelayService {
 
@@ -14,11 +18,12 @@ public class DelayService {
     private static final String LIMIT_REMAIN = "x-esi-error-limit-remain";
     private final Logger log = LoggerFactory.getLogger(getClass());
 
-    private Instant delayExpiry = Instant.now();
+    private volatile Instant delayExpiry = Instant.now();
+    private volatile int errorLimitRemain = 100;
 
     public void enhanceYourCalm(final HttpHeaders headers) {
         if (headers.containsKey(LIMIT_RESET) && headers.containsKey(LIMIT_REMAIN)) {
-            final int errorLimitRemain = Integer.parseInt(headers.get(LIMIT_REMAIN).get(0));
+            errorLimitRemain = Integer.parseInt(headers.get(LIMIT_REMAIN).get(0));
             if (errorLimitRemain < 50) {
                 final int errorLimitReset = Integer.parseInt(headers.get(LIMIT_RESET).get(0));
                 log.info("Setting delay to {} seconds from now.", errorLimitReset);
@@ -31,6 +36,17 @@ public class DelayService {
         delayExpiry = Instant.now().plusSeconds(errorLimitReset);
     }
 
+    /**
+     * @return the errors ESI allowed in the current window, as of the last response
+     */
+    public int getErrorLimitRemain() {
+        return errorLimitRemain;
+    }
+
+    Instant getDelayExpiry() {
+        return delayExpiry;
+    }
+
     public boolean shouldIChill() {
         final boolean shouldChill = delayExpiry.isAfter(Instant.now());
         if (shouldChill) {
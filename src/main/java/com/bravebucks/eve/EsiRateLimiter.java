@@ -0,0 +1,169 @@
+package com.bravebucks.eve;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import com.bravebucks.eve.config.ApplicationProperties;
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpRequest;
+import org.springframework.http.client.ClientHttpRequestExecution;
+import org.springframework.http.client.ClientHttpRequestInterceptor;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestClientException;
+
+/**
+ * Limits the requests of the shared {@code RestTemplate} to ESI.
+ * <p>
+ * Every endpoint group, the first path segment after the version, has a token bucket with the rate from
+ * {@code application.esi}. A request waits for a token, and while the error budget tracked by {@link DelayService}
+ * is exhausted it waits for the budget to reset. If either wait would exceed {@code application.esi.max-wait} the
+ * request fails right away with an {@link EsiThrottledException}. Requests to other hosts pass unchanged.
+ */
+@Component
+public class EsiRateLimiter implements ClientHttpRequestInterceptor {
+
+    private static final String ESI_HOST = "esi.evetech.net";
+
+    private final Logger log = LoggerFactory.getLogger(getClass());
+
+    private final DelayService delayService;
+    private final ApplicationProperties.Esi esi;
+    private final MetricRegistry metricRegistry;
+    private final Map<String, Group> groups = new ConcurrentHashMap<>();
+
+    public EsiRateLimiter(final DelayService delayService,
+                          final ApplicationProperties applicationProperties,
+                          final MetricRegistry metricRegistry) {
+        this.delayService = delayService;
+        this.esi = applicationProperties.getEsi();
+        this.metricRegistry = metricRegistry;
+        metricRegistry.register(MetricRegistry.name(EsiRateLimiter.class, "error-limit-remain"),
+                                (Gauge<Integer>) delayService::getErrorLimitRemain);
+    }
+
+    @Override
+    public ClientHttpResponse intercept(final HttpRequest request, final byte[] body,
+                                        final ClientHttpRequestExecution execution) throws IOException {
+        if (!ESI_HOST.equals(request.getURI().getHost())) {
+            return execution.execute(request, body);
+        }
+        final String name = getGroup(request.getURI().getPath());
+        final Group group = groups.computeIfAbsent(name, this::register);
+        final long maxWaitNanos = TimeUnit.MILLISECONDS.toNanos(esi.getMaxWait());
+
+        long waitNanos = Math.max(0, Duration.between(Instant.now(), delayService.getDelayExpiry()).toNanos());
+        final long tokenWaitNanos = waitNanos > maxWaitNanos ? -1 : group.reserve(System.nanoTime(),
+                                                                                  maxWaitNanos - waitNanos);
+        if (tokenWaitNanos < 0) {
+            group.shed.mark();
+            throw new EsiThrottledException(name);
+        }
+        waitNanos += tokenWaitNanos;
+        if (waitNanos > 0) {
+            group.waits.update(waitNanos, TimeUnit.NANOSECONDS);
+            try {
+                TimeUnit.NANOSECONDS.sleep(waitNanos);
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new EsiThrottledException(name);
+            }
+        }
+
+        group.requests.mark();
+        final ClientHttpResponse response = execution.execute(request, body);
+        // every response carries the error budget, not only the failed ones
+        delayService.enhanceYourCalm(response.getHeaders());
+        return response;
+    }
+
+    /**
+     * @return the first path segment after the version, e.g. {@code characters} for {@code /v4/characters/1/}
+     */
+    static String getGroup(final String path) {
+        for (final String segment : path.split("/")) {
+            if (!segment.isEmpty() && !isVersion(segment)) {
+                return segment;
+            }
+        }
+        return "root";
+    }
+
+    private static boolean isVersion(final String segment) {
+        return segment.matches("v\\d+") || "latest".equals(segment) || "legacy".equals(segment)
+               || "dev".equals(segment);
+    }
+
+    private Group register(final String name) {
+        final double rate = esi.getGroups().getOrDefault(name, esi.getRate());
+        log.info("Limiting ESI endpoint group {} to {} requests per second.", name, rate);
+        return new Group(rate, esi.getBurst(),
+                         metricRegistry.meter(MetricRegistry.name(EsiRateLimiter.class, name, "requests")),
+                         metricRegistry.meter(MetricRegistry.name(EsiRateLimiter.class, name, "shed")),
+                         metricRegistry.timer(MetricRegistry.name(EsiRateLimiter.class, name, "wait")));
+    }
+
+    /**
+     * A token bucket that lets requests borrow future tokens, so concurrent callers are spaced out evenly.
+     */
+    static final class Group {
+        private final double tokensPerNano;
+        private final int burst;
+        private final Meter requests;
+        private final Meter shed;
+        private final Timer waits;
+        private double tokens;
+        private long refilled;
+
+        Group(final double rate, final int burst, final Meter requests, final Meter shed, final Timer waits) {
+            this.tokensPerNano = rate / TimeUnit.SECONDS.toNanos(1);
+            this.burst = burst;
+            this.requests = requests;
+            this.shed = shed;
+            this.waits = waits;
+            tokens = burst;
+            refilled = System.nanoTime();
+        }
+
+        /**
+         * Takes a token.
+         *
+         * @return nanoseconds to wait before the token may be used, or -1 if that would exceed the maximum wait and
+         * no token was taken
+         */
+        synchronized long reserve(final long now, final long maxWaitNanos) {
+            tokens = Math.min(burst, tokens + (now - refilled) * tokensPerNano);
+            refilled = now;
+            if (tokens >= 1) {
+                tokens -= 1;
+                return 0;
+            }
+            final long wait = (long) Math.ceil((1 - tokens) / tokensPerNano);
+            if (wait > maxWaitNanos) {
+                return -1;
+            }
+            tokens -= 1;
+            return wait;
+        }
+    }
+
+    /**
+     * Thrown instead of sending a request to ESI that would have to wait too long for the rate or error limit.
+     */
+    public static class EsiThrottledException extends RestClientException {
+
+        public EsiThrottledException(final String group) {
+            super("ESI requests to " + group + " are throttled.");
+        }
+    }
+}
@@ -16,12 +16,6 @@ public class MyResponseErrorHandler implements ResponseErrorHandler {
 
     private final Logger logger = LoggerFactory.getLogger(getClass());
 
-    private final DelayService esiDelayService;
-
-    public MyResponseErrorHandler(final DelayService esiDelayService) {
-        this.esiDelayService = esiDelayService;
-    }
-
     @Override
     public boolean hasError(final ClientHttpResponse response) throws IOException {
         return response.getRawStatusCode() >= 400;
@@ -44,8 +38,8 @@ public class MyResponseErrorHandler implements ResponseErrorHandler {
         final String body = convertStreamToString(response.getBody());
         logger.warn("{}: Body: {}, Headers: {}", response.getRawStatusCode(), body, getHeaders(response));
         String statusText = response.getStatusText();
+        // the error budget in the headers is tracked by EsiRateLimiter
         if (response.getRawStatusCode() == 520) {
-            esiDelayService.enhanceYourCalm(response.getHeaders());
             throw new HttpClientErrorException(HttpStatus.valueOf(420), statusText,
                                                body.getBytes(StandardCharsets.UTF_8), StandardCharsets.UTF_8);
         } else if (response.getRawStatusCode() >= 500) {
@@ -56,9 +50,6 @@ public class MyResponseErrorHandler implements ResponseErrorHandler {
             if (body.contains("invalid_token")) {
                 statusText = "invalid_token";
             }
-            if (response.getRawStatusCode() == 420) {
-                esiDelayService.enhanceYourCalm(response.getHeaders());
-            }
             throw new HttpClientErrorException(HttpStatus.valueOf(response.getRawStatusCode()), statusText,
                                                body.getBytes(StandardCharsets.UTF_8), StandardCharsets.UTF_8);
         }
@@ -1,5 +1,8 @@
 package com.bravebucks.eve.config;
 
+import java.util.HashMap;
+import java.util.Map;
+
 import org.springframework.boot.context.properties.ConfigurationProperties;
 
 /**
@@ -10,4 +13,319 @@ import org.springframework.boot.context.properties.ConfigurationProperties;
 @ConfigurationProperties(prefix = "application", ignoreUnknownFields = false)
 public class ApplicationProperties {
 
+    private final Ingestion ingestion = new Ingestion();
+
+    private final Names names = new Names();
+
+    private final Wallet wallet = new Wallet();
+
+    private final Jobs jobs = new Jobs();
+
+    private final Esi esi = new Esi();
+
+    private final Appraisals appraisals = new Appraisals();
+
+    private final Payouts payouts = new Payouts();
+
+    private final MarketPrices marketPrices = new MarketPrices();
+
+    public Ingestion getIngestion() {
+        return ingestion;
+    }
+
+    public Names getNames() {
+        return names;
+    }
+
+    public Wallet getWallet() {
+        return wallet;
+    }
+
+    public Jobs getJobs() {
+        return jobs;
+    }
+
+    public Esi getEsi() {
+        return esi;
+    }
+
+    public Appraisals getAppraisals() {
+        return appraisals;
+    }
+
+    public Payouts getPayouts() {
+        return payouts;
+    }
+
+    public MarketPrices getMarketPrices() {
+        return marketPrices;
+    }
+
+    /**
+     * Settings of the RedisQ killmail stream, see KillmailPuller.
+     */
+    public static class Ingestion {
+
+        private boolean enabled = true;
+
+        private int queueCapacity = 10_000;
+
+        private int batchSize = 100;
+
+        private long flushInterval = 5_000;
+
+        private int recentKillIds = 100_000;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(final boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public int getQueueCapacity() {
+            return queueCapacity;
+        }
+
+        public void setQueueCapacity(final int queueCapacity) {
+            this.queueCapacity = queueCapacity;
+        }
+
+        public int getBatchSize() {
+            return batchSize;
+        }
+
+        public void setBatchSize(final int batchSize) {
+            this.batchSize = batchSize;
+        }
+
+        /**
+         * @return the maximum time in milliseconds a received killmail waits for its batch to fill up
+         */
+        public long getFlushInterval() {
+            return flushInterval;
+        }
+
+        public void setFlushInterval(final long flushInterval) {
+            this.flushInterval = flushInterval;
+        }
+
+        /**
+         * @return how many of the most recent kill ids are remembered for duplicate detection
+         */
+        public int getRecentKillIds() {
+            return recentKillIds;
+        }
+
+        public void setRecentKillIds(final int recentKillIds) {
+            this.recentKillIds = recentKillIds;
+        }
+    }
+
+    /**
+     * Settings of the universe name cache, see UniverseNameCache.
+     */
+    public static class Names {
+
+        private int maxSize = 10_000;
+
+        private long ttl = 86_400;
+
+        private long storeTtl = 2_592_000;
+
+        public int getMaxSize() {
+            return maxSize;
+        }
+
+        public void setMaxSize(final int maxSize) {
+            this.maxSize = maxSize;
+        }
+
+        /**
+         * @return seconds a name stays in memory
+         */
+        public long getTtl() {
+            return ttl;
+        }
+
+        public void setTtl(final long ttl) {
+            this.ttl = ttl;
+        }
+
+        /**
+         * @return seconds a stored name is used before it is resolved through ESI again
+         */
+        public long getStoreTtl() {
+            return storeTtl;
+        }
+
+        public void setStoreTtl(final long storeTtl) {
+            this.storeTtl = storeTtl;
+        }
+    }
+
+    /**
+     * Settings of the wallet journal collection, see WalletParser.
+     */
+    public static class Wallet {
+
+        private int parallelism = 4;
+
+        /**
+         * @return how many characters are processed concurrently
+         */
+        public int getParallelism() {
+            return parallelism;
+        }
+
+        public void setParallelism(final int parallelism) {
+            this.parallelism = parallelism;
+        }
+    }
+
+    /**
+     * Settings of the scheduled jobs, see JobRunner.
+     */
+    public static class Jobs {
+
+        private int poolSize = 4;
+
+        /**
+         * @return how many scheduled jobs can run at the same time, separate from the request-path async executor
+         */
+        public int getPoolSize() {
+            return poolSize;
+        }
+
+        public void setPoolSize(final int poolSize) {
+            this.poolSize = poolSize;
+        }
+    }
+
+    /**
+     * Settings of the outbound ESI rate limit, see EsiRateLimiter.
+     */
+    public static class Esi {
+
+        private double rate = 20;
+
+        private int burst = 20;
+
+        private long maxWait = 10_000;
+
+        private Map<String, Double> groups = new HashMap<>();
+
+        /**
+         * @return requests per second allowed for each endpoint group without its own rate
+         */
+        public double getRate() {
+            return rate;
+        }
+
+        public void setRate(final double rate) {
+            this.rate = rate;
+        }
+
+        /**
+         * @return how many requests an idle endpoint group may send at once
+         */
+        public int getBurst() {
+            return burst;
+        }
+
+        public void setBurst(final int burst) {
+            this.burst = burst;
+        }
+
+        /**
+         * @return the maximum time in milliseconds a request waits for the limit, it is rejected otherwise
+         */
+        public long getMaxWait() {
+            return maxWait;
+        }
+
+        public void setMaxWait(final long maxWait) {
+            this.maxWait = maxWait;
+        }
+
+        /**
+         * @return requests per second by endpoint group, the first path segment after the version such as
+         * {@code characters} or {@code universe}
+         */
+        public Map<String, Double> getGroups() {
+            return groups;
+        }
+
+        public void setGroups(final Map<String, Double> groups) {
+            this.groups = groups;
+        }
+    }
+
+    /**
+     * Settings of the appraisal cache, see AppraisalService.
+     */
+    public static class Appraisals {
+
+        private int maxSize = 1_000;
+
+        private long ttl = 3_600;
+
+        public int getMaxSize() {
+            return maxSize;
+        }
+
+        public void setMaxSize(final int maxSize) {
+            this.maxSize = maxSize;
+        }
+
+        /**
+         * @return seconds an appraisal result is reused for the same items
+         */
+        public long getTtl() {
+            return ttl;
+        }
+
+        public void setTtl(final long ttl) {
+            this.ttl = ttl;
+        }
+    }
+
+    /**
+     * Settings of the daily payout run, see PayoutCalculator.
+     */
+    public static class Payouts {
+
+        private int batchSize = 1_000;
+
+        /**
+         * @return how many transactions are inserted with one bulk write
+         */
+        public int getBatchSize() {
+            return batchSize;
+        }
+
+        public void setBatchSize(final int batchSize) {
+            this.batchSize = batchSize;
+        }
+    }
+
+    /**
+     * Settings of the Jita market price download, see MarketPriceService.
+     */
+    public static class MarketPrices {
+
+        private boolean enabled = true;
+
+        /**
+         * @return whether the prices are downloaded, local appraisals need them
+         */
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(final boolean enabled) {
+            this.enabled = enabled;
+        }
+    }
 }
@@ -0,0 +1,71 @@
+package com.bravebucks.eve.config.dbmigrations;
+
+import com.bravebucks.eve.domain.EveCharacter;
+import com.bravebucks.eve.domain.Killmail;
+import com.bravebucks.eve.domain.Payout;
+import com.bravebucks.eve.domain.RattingEntry;
+import com.bravebucks.eve.domain.Transaction;
+import com.bravebucks.eve.domain.User;
+import com.github.mongobee.changeset.ChangeLog;
+import com.github.mongobee.changeset.ChangeSet;
+
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.index.PartialIndexFilter;
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+
+/**
+ * Adds the indexes behind the repository finders and the highscore aggregation, see QueryPlanIntTest
+ */
+@ChangeLog(order = "005")
+public class AddFinderIndexes {
+
+    @ChangeSet(order = "01", author = "bravebucks", id = "01-killmailIndexes")
+    public void addKillmailIndexes(MongoTemplate mongoTemplate) {
+        // multikey, serves the newest kills of an attacker without sorting in memory
+        mongoTemplate.indexOps(Killmail.class)
+                     .ensureIndex(new Index().on("attackerIds", Sort.Direction.ASC)
+                                             .on("killTime", Sort.Direction.DESC));
+        mongoTemplate.indexOps(Killmail.class)
+                     .ensureIndex(new Index().on("killTime", Sort.Direction.DESC));
+        // only the few killmails still waiting for their payout are indexed
+        mongoTemplate.indexOps(Killmail.class)
+                     .ensureIndex(new Index().on("payoutCalculated", Sort.Direction.ASC)
+                                             .partial(PartialIndexFilter.of(where("payoutCalculated").is(false))));
+    }
+
+    @ChangeSet(order = "02", author = "bravebucks", id = "02-rattingEntryIndexes")
+    public void addRattingEntryIndexes(MongoTemplate mongoTemplate) {
+        mongoTemplate.indexOps(RattingEntry.class)
+                     .ensureIndex(new Index().on("processed", Sort.Direction.ASC)
+                                             .partial(PartialIndexFilter.of(where("processed").is(false))));
+    }
+
+    @ChangeSet(order = "03", author = "bravebucks", id = "03-transactionIndexes")
+    public void addTransactionIndexes(MongoTemplate mongoTemplate) {
+        mongoTemplate.indexOps(Transaction.class)
+                     .ensureIndex(new Index().on("user", Sort.Direction.ASC));
+        // equality on the type before the range on the instant
+        mongoTemplate.indexOps(Transaction.class)
+                     .ensureIndex(new Index().on("type", Sort.Direction.ASC).on("instant", Sort.Direction.ASC));
+    }
+
+    @ChangeSet(order = "04", author = "bravebucks", id = "04-payoutIndexes")
+    public void addPayoutIndexes(MongoTemplate mongoTemplate) {
+        mongoTemplate.indexOps(Payout.class)
+                     .ensureIndex(new Index().on("user", Sort.Direction.ASC).on("status", Sort.Direction.ASC));
+        mongoTemplate.indexOps(Payout.class)
+                     .ensureIndex(new Index().on("status", Sort.Direction.ASC));
+    }
+
+    @ChangeSet(order = "05", author = "bravebucks", id = "05-userAndCharacterIndexes")
+    public void addUserAndCharacterIndexes(MongoTemplate mongoTemplate) {
+        mongoTemplate.indexOps(User.class)
+                     .ensureIndex(new Index().on("characterId", Sort.Direction.ASC));
+        mongoTemplate.indexOps(User.class)
+                     .ensureIndex(new Index().on("allianceId", Sort.Direction.ASC));
+        mongoTemplate.indexOps(EveCharacter.class)
+                     .ensureIndex(new Index().on("owningUser", Sort.Direction.ASC).on("name", Sort.Direction.ASC));
+    }
+}
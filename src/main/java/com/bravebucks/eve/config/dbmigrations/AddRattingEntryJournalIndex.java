@@ -0,0 +1,42 @@
+package com.bravebucks.eve.config.dbmigrations;
+
+import java.util.List;
+
+import com.bravebucks.eve.domain.RattingEntry;
+import com.github.mongobee.changeset.ChangeLog;
+import com.github.mongobee.changeset.ChangeSet;
+import com.mongodb.DBObject;
+
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.query.Query;
+import static org.springframework.data.mongodb.core.aggregation.Aggregation.group;
+import static org.springframework.data.mongodb.core.aggregation.Aggregation.match;
+import static org.springframework.data.mongodb.core.aggregation.Aggregation.newAggregation;
+import static org.springframework.data.mongodb.core.aggregation.Aggregation.sort;
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+
+/**
+ * Makes the journal id of ratting entries unique
+ */
+@ChangeLog(order = "004")
+public class AddRattingEntryJournalIndex {
+
+    @ChangeSet(order = "01", author = "bravebucks", id = "01-uniqueRattingEntryJournalId")
+    public void addUniqueJournalIdIndex(MongoTemplate mongoTemplate) {
+        // keep one entry per journal id, preferring the one that was already paid out
+        final Aggregation duplicates = newAggregation(
+            sort(new Sort(Sort.Direction.DESC, "processed")),
+            group("journalId").push("_id").as("ids").count().as("count"),
+            match(where("count").gt(1))).withOptions(Aggregation.newAggregationOptions().allowDiskUse(true).build());
+        mongoTemplate.aggregate(duplicates, RattingEntry.class, DBObject.class).getMappedResults().forEach(duplicate -> {
+            final List<?> ids = (List<?>) duplicate.get("ids");
+            mongoTemplate.remove(new Query(where("_id").in(ids.subList(1, ids.size()))), RattingEntry.class);
+        });
+
+        mongoTemplate.indexOps(RattingEntry.class)
+                     .ensureIndex(new Index().on("journalId", Sort.Direction.ASC).unique());
+    }
+}
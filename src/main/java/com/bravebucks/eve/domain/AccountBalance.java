@@ -0,0 +1,106 @@
+package com.bravebucks.eve.domain;
+
+import java.time.Instant;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+import org.springframework.data.mongodb.core.mapping.Field;
+
+/**
+ * The materialized balance of a user, kept in sync with the transaction ledger and the requested payouts.
+ */
+@Document(collection = "account_balance")
+public class AccountBalance {
+
+    @Id
+    private String user;
+
+    @Field("transactions")
+    private double transactions;
+
+    @Field("pending")
+    private double pending;
+
+    @Field("updated")
+    private Instant updated;
+
+    @Field("version")
+    private Long version;
+
+    @Field("writers")
+    private int writers;
+
+    public AccountBalance() {
+    }
+
+    public AccountBalance(final String user, final double transactions, final double pending) {
+        this.user = user;
+        this.transactions = transactions;
+        this.pending = pending;
+        updated = Instant.now();
+    }
+
+    public String getUser() {
+        return user;
+    }
+
+    public void setUser(final String user) {
+        this.user = user;
+    }
+
+    /**
+     * @return the sum of all transaction amounts of the user
+     */
+    public double getTransactions() {
+        return transactions;
+    }
+
+    public void setTransactions(final double transactions) {
+        this.transactions = transactions;
+    }
+
+    /**
+     * @return the sum of the amounts of all payouts the user requested that are not paid yet
+     */
+    public double getPending() {
+        return pending;
+    }
+
+    public void setPending(final double pending) {
+        this.pending = pending;
+    }
+
+    public Instant getUpdated() {
+        return updated;
+    }
+
+    public void setUpdated(final Instant updated) {
+        this.updated = updated;
+    }
+
+    /**
+     * @return the number of increments applied to the balance, {@code null} before the first one
+     */
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(final Long version) {
+        this.version = version;
+    }
+
+    /**
+     * @return the number of writes to the ledger or the payouts of the user that are not applied to the balance yet
+     */
+    public int getWriters() {
+        return writers;
+    }
+
+    public void setWriters(final int writers) {
+        this.writers = writers;
+    }
+
+    public double getBalance() {
+        return transactions - pending;
+    }
+}
@@ -0,0 +1,56 @@
+package com.bravebucks.eve.domain;
+
+import java.time.Instant;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+import org.springframework.data.mongodb.core.mapping.Field;
+
+/**
+ * An id/name association resolved through ESI, kept so names do not have to be resolved again.
+ */
+@Document(collection = "universe_name")
+public class CachedUniverseName {
+
+    @Id
+    private Integer id;
+
+    @Field("name")
+    private String name;
+
+    @Field("updated")
+    private Instant updated;
+
+    public CachedUniverseName() {
+    }
+
+    public CachedUniverseName(final Integer id, final String name, final Instant updated) {
+        this.id = id;
+        this.name = name;
+        this.updated = updated;
+    }
+
+    public Integer getId() {
+        return id;
+    }
+
+    public void setId(final Integer id) {
+        this.id = id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(final String name) {
+        this.name = name;
+    }
+
+    public Instant getUpdated() {
+        return updated;
+    }
+
+    public void setUpdated(final Instant updated) {
+        this.updated = updated;
+    }
+}
@@ -0,0 +1,64 @@
+package com.bravebucks.eve.domain;
+
+import java.time.Instant;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+import org.springframework.data.mongodb.core.mapping.Field;
+
+/**
+ * The lease on a scheduled job, held by the one node that may run it until {@code lockedUntil}.
+ */
+@Document(collection = "job_lock")
+public class JobLock {
+
+    @Id
+    private String job;
+
+    @Field("owner")
+    private String owner;
+
+    @Field("locked_until")
+    private Instant lockedUntil;
+
+    @Field("heartbeat")
+    private Instant heartbeat;
+
+    public String getJob() {
+        return job;
+    }
+
+    public void setJob(final String job) {
+        this.job = job;
+    }
+
+    /**
+     * @return the node that acquired the lease last, see {@code SchedulerLock}
+     */
+    public String getOwner() {
+        return owner;
+    }
+
+    public void setOwner(final String owner) {
+        this.owner = owner;
+    }
+
+    public Instant getLockedUntil() {
+        return lockedUntil;
+    }
+
+    public void setLockedUntil(final Instant lockedUntil) {
+        this.lockedUntil = lockedUntil;
+    }
+
+    /**
+     * @return when the owner last acquired or renewed the lease
+     */
+    public Instant getHeartbeat() {
+        return heartbeat;
+    }
+
+    public void setHeartbeat(final Instant heartbeat) {
+        this.heartbeat = heartbeat;
+    }
+}
@@ -4,6 +4,7 @@ import java.util.ArrayList;
 import java.util.List;
 
 import org.springframework.data.annotation.Id;
+import org.springframework.data.annotation.Transient;
 import org.springframework.data.mongodb.core.mapping.Document;
 
 @Document(collection = "killmail")
@@ -18,9 +19,12 @@ public class Killmail {
     private long victimId;
     private String victimName;
     private String victimGroupName;
+    @Transient
+    private Integer victimGroupId;
     private List<Integer> attackerIds = new ArrayList<>();
     private Integer finalBlowAttackerId;
     private boolean payoutCalculated;
+    private String payoutRun;
     private long shipTypeId;
 
     public String getVictimName() {
@@ -39,6 +43,17 @@ public class Killmail {
         return payoutCalculated;
     }
 
+    /**
+     * @return the payout run that claimed this killmail, null while it is waiting for one
+     */
+    public String getPayoutRun() {
+        return payoutRun;
+    }
+
+    public void setPayoutRun(final String payoutRun) {
+        this.payoutRun = payoutRun;
+    }
+
     public long getKillId() {
         return killId;
     }
@@ -111,6 +126,14 @@ public class Killmail {
         return victimGroupName;
     }
 
+    public Integer getVictimGroupId() {
+        return victimGroupId;
+    }
+
+    public void setVictimGroupId(final Integer victimGroupId) {
+        this.victimGroupId = victimGroupId;
+    }
+
     public Integer getFinalBlowAttackerId() {
         return finalBlowAttackerId;
     }
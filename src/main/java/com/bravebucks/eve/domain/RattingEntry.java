@@ -13,6 +13,7 @@ public class RattingEntry {
     private Instant instant;
     private Double adm;
     private boolean processed;
+    private String payoutRun;
 
     public RattingEntry() {
     }
@@ -37,6 +38,17 @@ public class RattingEntry {
         this.processed = processed;
     }
 
+    /**
+     * @return the payout run that claimed this entry, null while it is waiting for one
+     */
+    public String getPayoutRun() {
+        return payoutRun;
+    }
+
+    public void setPayoutRun(final String payoutRun) {
+        this.payoutRun = payoutRun;
+    }
+
     public String getId() {
         return id;
     }
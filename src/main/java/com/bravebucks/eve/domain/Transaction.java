@@ -31,6 +31,9 @@ public class Transaction implements Serializable {
     @Field("type")
     private TransactionType type;
 
+    @Field("payout_run")
+    private String payoutRun;
+
     public Transaction() {
     }
 
@@ -101,6 +104,17 @@ public class Transaction implements Serializable {
     public void setType(TransactionType type) {
         this.type = type;
     }
+
+    /**
+     * @return the payout run that created this transaction, null for transactions not created by PayoutCalculator
+     */
+    public String getPayoutRun() {
+        return payoutRun;
+    }
+
+    public void setPayoutRun(final String payoutRun) {
+        this.payoutRun = payoutRun;
+    }
     // jhipster-needle-entity-add-getters-setters - Jhipster will add getters and setters here, do not remove
 
     @Override
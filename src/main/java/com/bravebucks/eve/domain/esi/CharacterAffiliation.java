@@ -0,0 +1,30 @@
+package com.bravebucks.eve.domain.esi;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class CharacterAffiliation {
+
+    @JsonProperty("character_id")
+    private Integer characterId;
+
+    @JsonProperty("alliance_id")
+    private Integer allianceId;
+
+    public Integer getCharacterId() {
+        return characterId;
+    }
+
+    public void setCharacterId(final Integer characterId) {
+        this.characterId = characterId;
+    }
+
+    public Integer getAllianceId() {
+        return allianceId;
+    }
+
+    public void setAllianceId(final Integer allianceId) {
+        this.allianceId = allianceId;
+    }
+}
@@ -0,0 +1,63 @@
+package com.bravebucks.eve.domain.esi;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class MarketOrder {
+
+    @JsonProperty("type_id")
+    private int typeId;
+
+    @JsonProperty("location_id")
+    private long locationId;
+
+    @JsonProperty("is_buy_order")
+    private boolean buyOrder;
+
+    @JsonProperty("price")
+    private double price;
+
+    @JsonProperty("volume_remain")
+    private long volumeRemain;
+
+    public int getTypeId() {
+        return typeId;
+    }
+
+    public void setTypeId(final int typeId) {
+        this.typeId = typeId;
+    }
+
+    public long getLocationId() {
+        return locationId;
+    }
+
+    public void setLocationId(final long locationId) {
+        this.locationId = locationId;
+    }
+
+    public boolean isBuyOrder() {
+        return buyOrder;
+    }
+
+    public void setBuyOrder(final boolean buyOrder) {
+        this.buyOrder = buyOrder;
+    }
+
+    public double getPrice() {
+        return price;
+    }
+
+    public void setPrice(final double price) {
+        this.price = price;
+    }
+
+    public long getVolumeRemain() {
+        return volumeRemain;
+    }
+
+    public void setVolumeRemain(final long volumeRemain) {
+        this.volumeRemain = volumeRemain;
+    }
+}
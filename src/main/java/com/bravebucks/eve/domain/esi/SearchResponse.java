@@ -0,0 +1,21 @@
+package com.bravebucks.eve.domain.esi;
+
+import java.util.List;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class SearchResponse {
+
+    @JsonProperty("solar_system")
+    private List<Long> solarSystem;
+
+    public List<Long> getSolarSystem() {
+        return solarSystem;
+    }
+
+    public void setSolarSystem(final List<Long> solarSystem) {
+        this.solarSystem = solarSystem;
+    }
+}
@@ -0,0 +1,78 @@
+package com.bravebucks.eve.domain.evepraisal;
+
+import java.util.List;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class AppraisalResult {
+
+    private Totals totals;
+    private List<Item> items;
+
+    public Totals getTotals() {
+        return totals;
+    }
+
+    public void setTotals(final Totals totals) {
+        this.totals = totals;
+    }
+
+    public List<Item> getItems() {
+        return items;
+    }
+
+    public void setItems(final List<Item> items) {
+        this.items = items;
+    }
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public static class Totals {
+        private double buy;
+
+        public double getBuy() {
+            return buy;
+        }
+
+        public void setBuy(final double buy) {
+            this.buy = buy;
+        }
+    }
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public static class Item {
+        @JsonProperty("typeID")
+        private int typeId;
+
+        @JsonProperty("typeName")
+        private String typeName;
+
+        @JsonProperty("quantity")
+        private int quantity;
+
+        public int getTypeId() {
+            return typeId;
+        }
+
+        public void setTypeId(final int typeId) {
+            this.typeId = typeId;
+        }
+
+        public String getTypeName() {
+            return typeName;
+        }
+
+        public void setTypeName(final String typeName) {
+            this.typeName = typeName;
+        }
+
+        public int getQuantity() {
+            return quantity;
+        }
+
+        public void setQuantity(final int quantity) {
+            this.quantity = quantity;
+        }
+    }
+}
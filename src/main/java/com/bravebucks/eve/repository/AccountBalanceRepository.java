@@ -0,0 +1,13 @@
+package com.bravebucks.eve.repository;
+
+import com.bravebucks.eve.domain.AccountBalance;
+
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Spring Data MongoDB repository for the AccountBalance entity.
+ */
+@Repository
+public interface AccountBalanceRepository extends MongoRepository<AccountBalance, String> {
+}
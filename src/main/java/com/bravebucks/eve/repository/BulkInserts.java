@@ -0,0 +1,67 @@
+package com.bravebucks.eve.repository;
+
+import java.util.List;
+import static java.util.stream.Collectors.toList;
+
+import com.mongodb.BulkWriteError;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations.BulkMode;
+import org.springframework.data.mongodb.core.MongoTemplate;
+
+/**
+ * Unordered bulk inserts that tolerate documents violating a unique index.
+ */
+final class BulkInserts {
+
+    static final int DUPLICATE_KEY = 11000;
+
+    private static final Logger log = LoggerFactory.getLogger(BulkInserts.class);
+
+    private BulkInserts() {
+    }
+
+    /**
+     * Inserts all documents in one unordered bulk write. Documents rejected as duplicates are skipped, any other
+     * write error is rethrown.
+     *
+     * @return the number of inserted documents
+     */
+    static <T> int insertIgnoringDuplicates(final MongoTemplate mongoTemplate, final Class<T> type,
+                                            final List<T> documents) {
+        if (documents.isEmpty()) {
+            return 0;
+        }
+        try {
+            return mongoTemplate.bulkOps(BulkMode.UNORDERED, type).insert(documents).execute().getInsertedCount();
+        } catch (final BulkOperationException e) {
+            final List<BulkWriteError> otherErrors = e.getErrors().stream()
+                                                      .filter(error -> error.getCode() != DUPLICATE_KEY)
+                                                      .collect(toList());
+            if (!otherErrors.isEmpty()) {
+                throw e;
+            }
+            log.info("Skipped {} {} documents that were already stored.", e.getErrors().size(),
+                     type.getSimpleName());
+            return e.getResult().getInsertedCount();
+        }
+    }
+
+    /**
+     * Like {@link #insertIgnoringDuplicates(MongoTemplate, Class, List)}, with one bulk write per batch of documents.
+     *
+     * @return the number of inserted documents
+     */
+    static <T> int insertIgnoringDuplicates(final MongoTemplate mongoTemplate, final Class<T> type,
+                                            final List<T> documents, final int batchSize) {
+        final int batch = Math.max(1, batchSize);
+        int inserted = 0;
+        for (int from = 0; from < documents.size(); from += batch) {
+            inserted += insertIgnoringDuplicates(mongoTemplate, type,
+                                                 documents.subList(from, Math.min(from + batch, documents.size())));
+        }
+        return inserted;
+    }
+}
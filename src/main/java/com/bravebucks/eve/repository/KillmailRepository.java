@@ -12,12 +12,9 @@ import org.springframework.data.mongodb.repository.Query;
 /**
  * Spring Data MongoDB repository for the Killmail entity.
  */
-public interface KillmailRepository extends MongoRepository<Killmail, String> {
+public interface KillmailRepository extends MongoRepository<Killmail, String>, KillmailRepositoryCustom {
     @Query("{ attackerIds: ?0 }")
     List<Killmail> findByAttackerId(long attackerId, final Pageable pageable);
 
     Optional<Killmail> findByKillId(long killmailId);
-
-    @Query("{ payoutCalculated: false }")
-    List<Killmail> findPending();
 }
@@ -0,0 +1,53 @@
+package com.bravebucks.eve.repository;
+
+import java.util.Collection;
+import java.util.List;
+
+import com.bravebucks.eve.domain.Killmail;
+
+/**
+ * Batch operations on killmails that Spring Data cannot derive.
+ */
+public interface KillmailRepositoryCustom {
+
+    /**
+     * @return the subset of the given kill ids that is already stored, resolved with a single query
+     */
+    List<Long> findExistingKillIds(Collection<Long> killIds);
+
+    /**
+     * @return the highest kill ids, which are those of the most recent killmails, newest first
+     */
+    List<Long> findNewestKillIds(int limit);
+
+    /**
+     * Inserts all killmails in one unordered bulk write. Killmails that are already stored are skipped.
+     *
+     * @return the number of inserted killmails
+     */
+    int insertIgnoringDuplicates(List<Killmail> killmails);
+
+    /**
+     * @return the id of a payout run that claimed killmails without completing them, or null
+     */
+    String findUnfinishedPayoutRun();
+
+    /**
+     * Claims all pending killmails for the payout run with one multi-update on their ids.
+     *
+     * @return the claimed killmails
+     */
+    List<Killmail> claimPending(String payoutRun);
+
+    /**
+     * @return the killmails claimed by the payout run and not yet completed
+     */
+    List<Killmail> findClaimed(String payoutRun);
+
+    /**
+     * Marks all killmails claimed by the payout run as paid out with one multi-update.
+     *
+     * @return the number of completed killmails
+     */
+    int completePayoutRun(String payoutRun);
+}
@@ -0,0 +1,63 @@
+package com.bravebucks.eve.repository;
+
+import java.util.Collection;
+import java.util.List;
+import static java.util.stream.Collectors.toList;
+
+import com.bravebucks.eve.domain.Killmail;
+
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+
+public class KillmailRepositoryImpl implements KillmailRepositoryCustom {
+
+    private static final String DONE = "payoutCalculated";
+
+    private final MongoTemplate mongoTemplate;
+
+    public KillmailRepositoryImpl(final MongoTemplate mongoTemplate) {
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    @Override
+    public List<Long> findExistingKillIds(final Collection<Long> killIds) {
+        final Query query = new Query(where("_id").in(killIds));
+        query.fields().include("_id");
+        return mongoTemplate.find(query, Killmail.class).stream().map(Killmail::getKillId).collect(toList());
+    }
+
+    @Override
+    public List<Long> findNewestKillIds(final int limit) {
+        // kill ids are handed out in ascending order, so the _id index serves this without sorting the collection
+        final Query query = new Query().with(new Sort(Sort.Direction.DESC, "_id")).limit(limit);
+        query.fields().include("_id");
+        return mongoTemplate.find(query, Killmail.class).stream().map(Killmail::getKillId).collect(toList());
+    }
+
+    @Override
+    public int insertIgnoringDuplicates(final List<Killmail> killmails) {
+        return BulkInserts.insertIgnoringDuplicates(mongoTemplate, Killmail.class, killmails);
+    }
+
+    @Override
+    public String findUnfinishedPayoutRun() {
+        return PendingWork.findUnfinishedRun(mongoTemplate, Killmail.class, DONE);
+    }
+
+    @Override
+    public List<Killmail> claimPending(final String payoutRun) {
+        return PendingWork.claim(mongoTemplate, Killmail.class, DONE, payoutRun, Killmail::getKillId);
+    }
+
+    @Override
+    public List<Killmail> findClaimed(final String payoutRun) {
+        return PendingWork.findClaimed(mongoTemplate, Killmail.class, DONE, payoutRun);
+    }
+
+    @Override
+    public int completePayoutRun(final String payoutRun) {
+        return PendingWork.complete(mongoTemplate, Killmail.class, DONE, payoutRun);
+    }
+}
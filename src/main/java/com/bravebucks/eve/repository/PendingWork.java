@@ -0,0 +1,73 @@
+package com.bravebucks.eve.repository;
+
+import java.util.List;
+import java.util.function.Function;
+import static java.util.stream.Collectors.toList;
+
+import com.mongodb.DBObject;
+
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+
+/**
+ * A work queue of the documents whose boolean done field is still {@code false}, see AddFinderIndexes for the partial
+ * indexes behind it.
+ * <p>
+ * A run claims the pending documents by tagging them with its id in {@code payoutRun}, and completes them by setting
+ * the done field on everything it claimed. Both are single multi-updates that never replace a document. Documents of
+ * a run that crashed in between stay claimed, so the next run can find and redo exactly that run.
+ */
+final class PendingWork {
+
+    static final String RUN = "payoutRun";
+
+    private PendingWork() {
+    }
+
+    /**
+     * @return the id of a run that claimed documents without completing them, or {@code null}
+     */
+    static String findUnfinishedRun(final MongoTemplate mongoTemplate, final Class<?> type, final String done) {
+        final Query query = new Query(where(done).is(false).and(RUN).ne(null));
+        query.fields().include(RUN);
+        final DBObject claimed = mongoTemplate.findOne(query, DBObject.class, mongoTemplate.getCollectionName(type));
+        return null == claimed ? null : (String) claimed.get(RUN);
+    }
+
+    /**
+     * Tags all unclaimed pending documents with the run.
+     *
+     * @return the documents this run tagged, without those another run claimed in the meantime
+     */
+    static <T> List<T> claim(final MongoTemplate mongoTemplate, final Class<T> type, final String done,
+                             final String run, final Function<T, Object> id) {
+        final List<T> pending = mongoTemplate.find(new Query(where(done).is(false).and(RUN).is(null)), type);
+        if (pending.isEmpty()) {
+            return pending;
+        }
+        final List<Object> ids = pending.stream().map(id).collect(toList());
+        mongoTemplate.updateMulti(new Query(where("_id").in(ids).and(RUN).is(null)), Update.update(RUN, run), type);
+        return findClaimed(mongoTemplate, type, done, run);
+    }
+
+    /**
+     * @return the pending documents claimed by the run
+     */
+    static <T> List<T> findClaimed(final MongoTemplate mongoTemplate, final Class<T> type, final String done,
+                                   final String run) {
+        return mongoTemplate.find(new Query(where(done).is(false).and(RUN).is(run)), type);
+    }
+
+    /**
+     * Marks all documents claimed by the run as done.
+     *
+     * @return the number of completed documents
+     */
+    static int complete(final MongoTemplate mongoTemplate, final Class<?> type, final String done,
+                        final String run) {
+        return mongoTemplate.updateMulti(new Query(where(done).is(false).and(RUN).is(run)), Update.update(done, true),
+                                         type).getN();
+    }
+}
@@ -0,0 +1,49 @@
+package com.bravebucks.eve.repository;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+
+import com.bravebucks.eve.domain.RattingEntry;
+
+/**
+ * Batch operations on ratting entries that Spring Data cannot derive.
+ */
+public interface RattingEntryRepositoryCustom {
+
+    /**
+     * @return the subset of the given journal ids that is already stored, resolved with a single query
+     */
+    Set<Long> findExistingJournalIds(Collection<Long> journalIds);
+
+    /**
+     * Inserts all entries in one unordered bulk write. Entries whose journal id is already stored are skipped.
+     *
+     * @return the number of inserted entries
+     */
+    int insertIgnoringDuplicates(List<RattingEntry> rattingEntries);
+
+    /**
+     * @return the id of a payout run that claimed entries without completing them, or null
+     */
+    String findUnfinishedPayoutRun();
+
+    /**
+     * Claims all pending entries for the payout run with one multi-update on their ids.
+     *
+     * @return the claimed entries
+     */
+    List<RattingEntry> claimPending(String payoutRun);
+
+    /**
+     * @return the entries claimed by the payout run and not yet completed
+     */
+    List<RattingEntry> findClaimed(String payoutRun);
+
+    /**
+     * Marks all entries claimed by the payout run as processed with one multi-update.
+     *
+     * @return the number of completed entries
+     */
+    int completePayoutRun(String payoutRun);
+}
@@ -0,0 +1,55 @@
+package com.bravebucks.eve.repository;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import static java.util.stream.Collectors.toSet;
+
+import com.bravebucks.eve.domain.RattingEntry;
+
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+
+public class RattingEntryRepositoryImpl implements RattingEntryRepositoryCustom {
+
+    private static final String DONE = "processed";
+
+    private final MongoTemplate mongoTemplate;
+
+    public RattingEntryRepositoryImpl(final MongoTemplate mongoTemplate) {
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    @Override
+    public Set<Long> findExistingJournalIds(final Collection<Long> journalIds) {
+        final Query query = new Query(where("journalId").in(journalIds));
+        query.fields().include("journalId");
+        return mongoTemplate.find(query, RattingEntry.class).stream().map(RattingEntry::getJournalId).collect(toSet());
+    }
+
+    @Override
+    public int insertIgnoringDuplicates(final List<RattingEntry> rattingEntries) {
+        return BulkInserts.insertIgnoringDuplicates(mongoTemplate, RattingEntry.class, rattingEntries);
+    }
+
+    @Override
+    public String findUnfinishedPayoutRun() {
+        return PendingWork.findUnfinishedRun(mongoTemplate, RattingEntry.class, DONE);
+    }
+
+    @Override
+    public List<RattingEntry> claimPending(final String payoutRun) {
+        return PendingWork.claim(mongoTemplate, RattingEntry.class, DONE, payoutRun, RattingEntry::getId);
+    }
+
+    @Override
+    public List<RattingEntry> findClaimed(final String payoutRun) {
+        return PendingWork.findClaimed(mongoTemplate, RattingEntry.class, DONE, payoutRun);
+    }
+
+    @Override
+    public int completePayoutRun(final String payoutRun) {
+        return PendingWork.complete(mongoTemplate, RattingEntry.class, DONE, payoutRun);
+    }
+}
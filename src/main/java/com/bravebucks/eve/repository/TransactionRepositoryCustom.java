@@ -0,0 +1,33 @@
+package com.bravebucks.eve.repository;
+
+import java.util.List;
+
+import com.bravebucks.eve.domain.Transaction;
+
+/**
+ * Ledger aggregations that run inside MongoDB instead of loading the transactions, and batch writes.
+ */
+public interface TransactionRepositoryCustom {
+
+    /**
+     * @return the sum of all transaction amounts
+     */
+    double sumAmounts();
+
+    /**
+     * Counts the users whose balance, the sum of their transaction amounts, lies within the given range.
+     *
+     * @param min inclusive lower bound
+     * @param max exclusive upper bound, or null for no upper bound
+     * @return the number of matching users
+     */
+    int countUsersWithBalance(double min, Double max);
+
+    /**
+     * Inserts the transactions with one unordered bulk write per batch. Transactions whose id is already stored are
+     * skipped.
+     *
+     * @return the number of inserted transactions
+     */
+    int insertIgnoringDuplicates(List<Transaction> transactions, int batchSize);
+}
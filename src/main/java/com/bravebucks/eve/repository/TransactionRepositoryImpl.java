@@ -0,0 +1,51 @@
+package com.bravebucks.eve.repository;
+
+import java.util.List;
+
+import com.bravebucks.eve.domain.Transaction;
+import com.mongodb.DBObject;
+
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.query.Criteria;
+import static org.springframework.data.mongodb.core.aggregation.Aggregation.group;
+import static org.springframework.data.mongodb.core.aggregation.Aggregation.match;
+import static org.springframework.data.mongodb.core.aggregation.Aggregation.newAggregation;
+
+public class TransactionRepositoryImpl implements TransactionRepositoryCustom {
+
+    private static final String COLLECTION = "transaction";
+
+    private final MongoTemplate mongoTemplate;
+
+    public TransactionRepositoryImpl(final MongoTemplate mongoTemplate) {
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    @Override
+    public double sumAmounts() {
+        final Aggregation aggregation = newAggregation(group().sum("amount").as("total"));
+        final DBObject result = mongoTemplate.aggregate(aggregation, COLLECTION, DBObject.class)
+                                             .getUniqueMappedResult();
+        return null == result ? 0 : ((Number) result.get("total")).doubleValue();
+    }
+
+    @Override
+    public int countUsersWithBalance(final double min, final Double max) {
+        final Criteria balance = new Criteria("balance").gte(min);
+        if (null != max) {
+            balance.lt(max);
+        }
+        final Aggregation aggregation = newAggregation(group("user").sum("amount").as("balance"),
+                                                       match(balance),
+                                                       group().count().as("count"));
+        final DBObject result = mongoTemplate.aggregate(aggregation, COLLECTION, DBObject.class)
+                                             .getUniqueMappedResult();
+        return null == result ? 0 : ((Number) result.get("count")).intValue();
+    }
+
+    @Override
+    public int insertIgnoringDuplicates(final List<Transaction> transactions, final int batchSize) {
+        return BulkInserts.insertIgnoringDuplicates(mongoTemplate, Transaction.class, transactions, batchSize);
+    }
+}
@@ -0,0 +1,13 @@
+package com.bravebucks.eve.repository;
+
+import com.bravebucks.eve.domain.CachedUniverseName;
+
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Spring Data MongoDB repository for the CachedUniverseName entity.
+ */
+@Repository
+public interface UniverseNameRepository extends MongoRepository<CachedUniverseName, Integer> {
+}
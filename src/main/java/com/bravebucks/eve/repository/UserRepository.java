@@ -14,7 +14,7 @@ import java.util.Optional;
  * Spring Data MongoDB repository for the User entity.
  */
 @Repository
-public interface UserRepository extends MongoRepository<User, String> {
+public interface UserRepository extends MongoRepository<User, String>, UserRepositoryCustom {
 
     Optional<User> findOneByLogin(String login);
 
@@ -0,0 +1,17 @@
+package com.bravebucks.eve.repository;
+
+import java.util.Map;
+
+/**
+ * Batch operations on users that Spring Data cannot derive.
+ */
+public interface UserRepositoryCustom {
+
+    /**
+     * Sets the alliance of every given user in one unordered bulk write, without loading the users.
+     *
+     * @param allianceIdsByUserId the new alliance id by user id, {@code null} for users without alliance
+     * @return the number of modified users
+     */
+    int updateAllianceIds(Map<String, Integer> allianceIdsByUserId);
+}
@@ -0,0 +1,33 @@
+package com.bravebucks.eve.repository;
+
+import java.util.Map;
+
+import com.bravebucks.eve.domain.User;
+
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.BulkOperations.BulkMode;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+
+public class UserRepositoryImpl implements UserRepositoryCustom {
+
+    private final MongoTemplate mongoTemplate;
+
+    public UserRepositoryImpl(final MongoTemplate mongoTemplate) {
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    @Override
+    public int updateAllianceIds(final Map<String, Integer> allianceIdsByUserId) {
+        if (allianceIdsByUserId.isEmpty()) {
+            return 0;
+        }
+        final BulkOperations operations = mongoTemplate.bulkOps(BulkMode.UNORDERED, User.class);
+        allianceIdsByUserId.forEach((userId, allianceId) -> operations.updateOne(
+            new Query(where("id").is(userId)),
+            null == allianceId ? new Update().unset("allianceId") : Update.update("allianceId", allianceId)));
+        return operations.execute().getModifiedCount();
+    }
+}
@@ -0,0 +1,147 @@
+package com.bravebucks.eve.service;
+
+import java.time.Instant;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.bravebucks.eve.domain.esi.AccessTokenResponse;
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import static com.bravebucks.eve.web.rest.UserJWTController.getBasicAuth;
+
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+import org.springframework.util.LinkedMultiValueMap;
+import org.springframework.util.MultiValueMap;
+import org.springframework.web.client.RestTemplate;
+
+/**
+ * Caches SSO access tokens per character.
+ * <p>
+ * A token is reused until shortly before it expires and is then refreshed with the character's refresh token.
+ * Concurrent requests for the same character wait for a single refresh, which runs outside of any lock of the map.
+ */
+@Service
+public class AccessTokenCache {
+
+    private static final String TOKEN_URL = "https://login.eveonline.com/oauth/token";
+    private static final long REFRESH_AHEAD_SECONDS = 60;
+    private static final int DEFAULT_EXPIRES_IN = 1200;
+
+    private final RestTemplate restTemplate;
+    private final Map<Integer, CompletableFuture<CachedToken>> tokens = new ConcurrentHashMap<>();
+    private final Meter hits;
+    private final Meter refreshes;
+
+    public AccessTokenCache(final RestTemplate restTemplate, final MetricRegistry metricRegistry) {
+        this.restTemplate = restTemplate;
+        hits = metricRegistry.meter(MetricRegistry.name(AccessTokenCache.class, "hits"));
+        refreshes = metricRegistry.meter(MetricRegistry.name(AccessTokenCache.class, "refreshes"));
+        metricRegistry.register(MetricRegistry.name(AccessTokenCache.class, "size"), (Gauge<Integer>) tokens::size);
+    }
+
+    /**
+     * @return a valid access token for the character, refreshed through SSO only when the cached one is about to
+     * expire or was issued for a different refresh token
+     */
+    public String getAccessToken(final int characterId, final String refreshToken, final String clientId,
+                                 final String clientSecret) {
+        while (true) {
+            final CompletableFuture<CachedToken> current = tokens.get(characterId);
+            if (null != current) {
+                // waits for a refresh in progress, without holding any lock of the map
+                final CachedToken token = await(current);
+                if (isUsable(token, refreshToken)) {
+                    hits.mark();
+                    return token.accessToken;
+                }
+            }
+            final CompletableFuture<CachedToken> refresh = new CompletableFuture<>();
+            final boolean claimed = null == current ? null == tokens.putIfAbsent(characterId, refresh)
+                                                    : tokens.replace(characterId, current, refresh);
+            if (claimed) {
+                refreshes.mark();
+                try {
+                    refresh.complete(refresh(refreshToken, clientId, clientSecret));
+                } catch (final RuntimeException e) {
+                    // failed refreshes are not cached, the next request tries again
+                    tokens.remove(characterId, refresh);
+                    refresh.completeExceptionally(e);
+                    throw e;
+                }
+                return refresh.join().accessToken;
+            }
+        }
+    }
+
+    public void evict(final int characterId) {
+        tokens.remove(characterId);
+    }
+
+    public void clear() {
+        tokens.clear();
+    }
+
+    /**
+     * @return the expiry of every cached token by character id
+     */
+    public Map<Integer, Instant> getExpiries() {
+        final Map<Integer, Instant> expiries = new TreeMap<>();
+        tokens.forEach((characterId, token) -> {
+            if (token.isDone() && !token.isCompletedExceptionally()) {
+                expiries.put(characterId, token.join().expiry);
+            }
+        });
+        return expiries;
+    }
+
+    private static CachedToken await(final CompletableFuture<CachedToken> token) {
+        try {
+            return token.join();
+        } catch (final CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    private static boolean isUsable(final CachedToken token, final String refreshToken) {
+        return null != token && token.refreshToken.equals(refreshToken)
+               && token.expiry.minusSeconds(REFRESH_AHEAD_SECONDS).isAfter(Instant.now());
+    }
+
+    private CachedToken refresh(final String refreshToken, final String clientId, final String clientSecret) {
+        final HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_FORM_URLENCODED);
+        headers.add("Authorization", getBasicAuth(clientId, clientSecret));
+
+        final MultiValueMap<String, String> map = new LinkedMultiValueMap<>();
+        map.add("grant_type", "refresh_token");
+        map.add("refresh_token", refreshToken);
+
+        final Instant requested = Instant.now();
+        final AccessTokenResponse response = restTemplate.postForEntity(TOKEN_URL, new HttpEntity<>(map, headers),
+                                                                        AccessTokenResponse.class).getBody();
+        final int expiresIn = response.getExpiresIn() > 0 ? response.getExpiresIn() : DEFAULT_EXPIRES_IN;
+        return new CachedToken(response.getAccessToken(), refreshToken, requested.plusSeconds(expiresIn));
+    }
+
+    private static final class CachedToken {
+        private final String accessToken;
+        private final String refreshToken;
+        private final Instant expiry;
+
+        private CachedToken(final String accessToken, final String refreshToken, final Instant expiry) {
+            this.accessToken = accessToken;
+            this.refreshToken = refreshToken;
+            this.expiry = expiry;
+        }
+    }
+}
@@ -0,0 +1,325 @@
+package com.bravebucks.eve.service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+import javax.annotation.PostConstruct;
+
+import com.bravebucks.eve.domain.AccountBalance;
+import com.bravebucks.eve.domain.Payout;
+import com.bravebucks.eve.domain.Transaction;
+import com.bravebucks.eve.domain.enumeration.PayoutStatus;
+import com.bravebucks.eve.repository.AccountBalanceRepository;
+import com.codahale.metrics.annotation.Timed;
+import com.mongodb.DBObject;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.BulkOperations.BulkMode;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import static org.springframework.data.mongodb.core.aggregation.Aggregation.group;
+import static org.springframework.data.mongodb.core.aggregation.Aggregation.match;
+import static org.springframework.data.mongodb.core.aggregation.Aggregation.newAggregation;
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+
+/**
+ * Maintains one {@link AccountBalance} per user.
+ * <p>
+ * Every write to the transaction ledger or to a requested payout is applied to the balance with an atomic
+ * {@code $inc} that also increments its version, so reading a balance is a single lookup by id. The write and its
+ * increment run through {@link #write(Collection, Supplier)}, which marks the balance while the write is in flight.
+ * The balances are reconciled with the ledger every night, and at startup when none exist yet, to correct any drift
+ * from writes that bypassed this service.
+ */
+@Service
+public class AccountBalanceService {
+
+    private static final Logger log = LoggerFactory.getLogger(AccountBalanceService.class);
+    private static final String JOB = "account-balance-reconciliation";
+    private static final double TOLERANCE = 0.01;
+    // a write marked for longer than this died before it could unmark the balance
+    private static final Duration ABANDONED_WRITE = Duration.ofMinutes(10);
+    private static final int ATTEMPTS = 3;
+    private static final long RETRY_DELAY = 200;
+
+    private final AccountBalanceRepository accountBalanceRepository;
+    private final MongoTemplate mongoTemplate;
+    private final JobRunner jobRunner;
+
+    public AccountBalanceService(final AccountBalanceRepository accountBalanceRepository,
+                                 final MongoTemplate mongoTemplate,
+                                 final JobRunner jobRunner) {
+        this.accountBalanceRepository = accountBalanceRepository;
+        this.mongoTemplate = mongoTemplate;
+        this.jobRunner = jobRunner;
+    }
+
+    @PostConstruct
+    public void init() {
+        if (accountBalanceRepository.count() == 0) {
+            reconcile();
+        }
+    }
+
+    /**
+     * @return the sum of all transactions of the user minus the requested payouts
+     */
+    public double getBalance(final String user) {
+        final AccountBalance balance = accountBalanceRepository.findOne(user);
+        return null == balance ? 0 : balance.getBalance();
+    }
+
+    /**
+     * Runs a write to the ledger or the payouts of the users, which applies itself to their balances. The balances
+     * are marked for the duration, so a reconciliation in between skips them instead of counting the ledger entry
+     * and then its increment.
+     *
+     * @return the result of the write
+     */
+    public <T> T write(final Collection<String> users, final Supplier<T> write) {
+        final Set<String> marked = users.stream().filter(Objects::nonNull).collect(Collectors.toSet());
+        mark(marked, 1);
+        try {
+            return write.get();
+        } finally {
+            mark(marked, -1);
+        }
+    }
+
+    private void mark(final Set<String> users, final int writers) {
+        if (users.isEmpty()) {
+            return;
+        }
+        final BulkOperations bulk = mongoTemplate.bulkOps(BulkMode.UNORDERED, AccountBalance.class);
+        final Update update = new Update().inc("writers", writers).inc("version", 1).set("updated", Instant.now());
+        users.forEach(user -> bulk.upsert(byUser(user), update));
+        bulk.execute();
+    }
+
+    public void addTransaction(final Transaction transaction) {
+        increment(transaction.getUser(), "transactions", amountOf(transaction));
+    }
+
+    public void removeTransaction(final Transaction transaction) {
+        increment(transaction.getUser(), "transactions", -amountOf(transaction));
+    }
+
+    /**
+     * Applies all transactions with one unordered bulk write containing a single increment per user.
+     */
+    public void addTransactions(final Collection<Transaction> transactions) {
+        final Map<String, Double> amounts = new HashMap<>();
+        transactions.stream()
+                    .filter(t -> null != t.getUser())
+                    .forEach(t -> amounts.merge(t.getUser(), amountOf(t), Double::sum));
+        if (amounts.isEmpty()) {
+            return;
+        }
+        final BulkOperations bulk = mongoTemplate.bulkOps(BulkMode.UNORDERED, AccountBalance.class);
+        amounts.forEach((user, amount) -> bulk.upsert(byUser(user), incrementing("transactions", amount)));
+        bulk.execute();
+    }
+
+    public void addPending(final Payout payout) {
+        if (PayoutStatus.REQUESTED == payout.getStatus()) {
+            increment(payout.getUser(), "pending", amountOf(payout));
+        }
+    }
+
+    public void removePending(final Payout payout) {
+        if (PayoutStatus.REQUESTED == payout.getStatus()) {
+            increment(payout.getUser(), "pending", -amountOf(payout));
+        }
+    }
+
+    /**
+     * Rebuilds all balances from the transaction ledger and the requested payouts.
+     * <p>
+     * Every balance is read with its version before the ledger is aggregated. An off balance is corrected by an
+     * {@code $inc} of the difference that only applies while the version is unchanged, and a balance without ledger
+     * entries is only removed while its version is unchanged. A balance incremented in the meantime, or with a write
+     * in flight, is skipped and corrected by the next run, so no increment is lost or counted twice.
+     */
+    @Timed
+    @Scheduled(cron = "0 30 4 * * *")
+    public void reconcile() {
+        jobRunner.runOnOneNode(JOB, () -> rebuild(null));
+    }
+
+    /**
+     * Reconciles the balances of the given users only, in the same way as {@link #reconcile()}, and retries the
+     * skipped ones a few times.
+     *
+     * @return whether all balances were reconciled, {@code false} if some stayed skipped or the reconciliation is
+     * already running on this or another node
+     */
+    public boolean reconcile(final Collection<String> users) {
+        final AtomicBoolean complete = new AtomicBoolean();
+        final boolean ran = jobRunner.runOnOneNode(JOB, () -> {
+            Collection<String> remaining = users;
+            for (int attempt = 1; attempt <= ATTEMPTS; attempt++) {
+                remaining = rebuild(remaining);
+                if (remaining.isEmpty() || attempt == ATTEMPTS || !pause()) {
+                    break;
+                }
+            }
+            complete.set(remaining.isEmpty());
+        });
+        return ran && complete.get();
+    }
+
+    private static boolean pause() {
+        try {
+            TimeUnit.MILLISECONDS.sleep(RETRY_DELAY);
+            return true;
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    /**
+     * @param users the users to reconcile, {@code null} for all
+     * @return the users whose balance was skipped
+     */
+    private Set<String> rebuild(final Collection<String> users) {
+        final Map<String, AccountBalance> read = new HashMap<>();
+        mongoTemplate.find(new Query(ofUsers("_id", users)), AccountBalance.class)
+                     .forEach(balance -> read.put(balance.getUser(), balance));
+
+        final Map<String, AccountBalance> rebuilt = new HashMap<>();
+        sumByUser(newAggregation(match(ofUsers("user", users)), group("user").sum("amount").as("amount")),
+                  "transaction")
+            .forEach((user, amount) -> rebuilt.computeIfAbsent(user, u -> new AccountBalance(u, 0, 0))
+                                              .setTransactions(amount));
+        sumByUser(newAggregation(match(ofUsers("user", users).and("status").is(PayoutStatus.REQUESTED.name())),
+                                 group("user").sum("amount").as("amount")), "payout")
+            .forEach((user, amount) -> rebuilt.computeIfAbsent(user, u -> new AccountBalance(u, 0, 0))
+                                              .setPending(amount));
+
+        final Instant abandoned = Instant.now().minus(ABANDONED_WRITE);
+        int corrected = 0;
+        int removed = 0;
+        final Set<String> skipped = new HashSet<>();
+        for (final AccountBalance expected : rebuilt.values()) {
+            final AccountBalance existing = read.getOrDefault(expected.getUser(),
+                                                              new AccountBalance(expected.getUser(), 0, 0));
+            if (isWriting(existing, abandoned)) {
+                skipped.add(existing.getUser());
+                continue;
+            }
+            final double transactions = expected.getTransactions() - existing.getTransactions();
+            final double pending = expected.getPending() - existing.getPending();
+            if (Math.abs(transactions) <= TOLERANCE && Math.abs(pending) <= TOLERANCE && existing.getWriters() == 0) {
+                continue;
+            }
+            if (correct(expected.getUser(), existing.getVersion(), transactions, pending)) {
+                corrected++;
+            } else {
+                skipped.add(expected.getUser());
+            }
+        }
+        for (final AccountBalance existing : read.values()) {
+            if (rebuilt.containsKey(existing.getUser())) {
+                continue;
+            }
+            if (!isWriting(existing, abandoned)
+                && mongoTemplate.remove(atVersion(existing.getUser(), existing.getVersion()), AccountBalance.class)
+                                .getN() > 0) {
+                removed++;
+            } else {
+                skipped.add(existing.getUser());
+            }
+        }
+        log.info("Reconciled {} account balances, corrected {}, removed {}, skipped {} being written meanwhile.",
+                 rebuilt.size(), corrected, removed, skipped.size());
+        return skipped;
+    }
+
+    private static boolean isWriting(final AccountBalance balance, final Instant abandoned) {
+        return balance.getWriters() > 0 && null != balance.getUpdated() && balance.getUpdated().isAfter(abandoned);
+    }
+
+    /**
+     * Adds the differences to the balance if it is still at the version, or creates it if it did not exist. Clears
+     * the marks of abandoned writes, the ledger contains whatever they wrote.
+     *
+     * @return whether the balance was corrected
+     */
+    private boolean correct(final String user, final Long version, final double transactions, final double pending) {
+        final Update update = new Update().inc("transactions", transactions)
+                                          .inc("pending", pending)
+                                          .inc("version", 1)
+                                          .set("writers", 0)
+                                          .set("updated", Instant.now());
+        try {
+            return mongoTemplate.upsert(atVersion(user, version), update, AccountBalance.class).getN() > 0;
+        } catch (final DuplicateKeyException e) {
+            // the version changed, so the upsert tried to insert a second balance for the user
+            return false;
+        }
+    }
+
+    private static Query atVersion(final String user, final Long version) {
+        // a missing version is matched with $exists, an upsert would copy an equality on null into the document
+        return new Query(null == version ? where("_id").is(user).and("version").exists(false)
+                                         : where("_id").is(user).and("version").is(version));
+    }
+
+    private static Criteria ofUsers(final String field, final Collection<String> users) {
+        return null == users ? where(field).exists(true) : where(field).in(users);
+    }
+
+    private Map<String, Double> sumByUser(final Aggregation aggregation, final String collection) {
+        final Map<String, Double> sums = new HashMap<>();
+        for (final DBObject result : mongoTemplate.aggregate(aggregation, collection, DBObject.class)
+                                                  .getMappedResults()) {
+            final Object user = result.get("_id");
+            if (null != user) {
+                sums.put(user.toString(), ((Number) result.get("amount")).doubleValue());
+            }
+        }
+        return sums;
+    }
+
+    private void increment(final String user, final String field, final double amount) {
+        if (null == user || amount == 0) {
+            return;
+        }
+        mongoTemplate.upsert(byUser(user), incrementing(field, amount), AccountBalance.class);
+    }
+
+    private static Query byUser(final String user) {
+        return new Query(where("_id").is(user));
+    }
+
+    private static Update incrementing(final String field, final double amount) {
+        return new Update().inc(field, amount).inc("version", 1).set("updated", Instant.now());
+    }
+
+    private static double amountOf(final Transaction transaction) {
+        return null == transaction.getAmount() ? 0 : transaction.getAmount();
+    }
+
+    private static double amountOf(final Payout payout) {
+        return null == payout.getAmount() ? 0 : payout.getAmount();
+    }
+}
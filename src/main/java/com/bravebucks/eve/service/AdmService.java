@@ -1,43 +1,58 @@
 package com.bravebucks.eve.service;
 
-import java.util.HashMap;
-import java.util.Map;
+import java.time.Duration;
+import java.time.Instant;
 
 import javax.annotation.PostConstruct;
 
 import com.bravebucks.eve.domain.esi.AdmResponse;
+import com.carrotsearch.hppc.IntDoubleHashMap;
+import com.carrotsearch.hppc.IntHashSet;
 import com.codahale.metrics.annotation.Timed;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.http.HttpStatus;
-import org.springframework.http.ResponseEntity;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
-import org.springframework.web.client.RestTemplate;
+import org.springframework.web.client.RestClientException;
 
+/**
+ * Holds the ADM of every solar system with a sovereignty structure.
+ * <p>
+ * Lookups read an immutable snapshot that is replaced as a whole on every refresh. A system missing from the
+ * snapshot triggers at most one refresh, shared by all threads missing at the same time, and no more than one per
+ * {@link #MIN_MISS_REFRESH_INTERVAL}. Systems still missing afterwards get the default ADM until the next refresh.
+ */
 @Service
 public class AdmService {
 
     private static final Logger LOG = LoggerFactory.getLogger(AdmService.class);
     private static final String URL = "https://esi.evetech.net/v1/sovereignty/structures/";
+    private static final double DEFAULT_ADM = 5.0;
+    private static final Duration MIN_MISS_REFRESH_INTERVAL = Duration.ofMinutes(5);
+    private static final String JOB = "adm";
 
-    private final RestTemplate restTemplate;
-    private final Map<Integer, Double> systemAdms = new HashMap<>();
+    private final ConditionalGetClient conditionalGetClient;
+    private final JobRunner jobRunner;
+    private final Object refreshLock = new Object();
+    private volatile Snapshot snapshot = new Snapshot(null, new IntDoubleHashMap(), new IntHashSet());
+    // guarded by refreshLock, set on failed downloads too so an ESI outage does not trigger one per miss
+    private Instant lastDownload = Instant.EPOCH;
 
-    public AdmService(final RestTemplate restTemplate) {
-        this.restTemplate = restTemplate;
+    public AdmService(final ConditionalGetClient conditionalGetClient, final JobRunner jobRunner) {
+        this.conditionalGetClient = conditionalGetClient;
+        this.jobRunner = jobRunner;
     }
 
     public double getAdm(final int systemId) {
-        if (!systemAdms.containsKey(systemId)) {
-            update();
+        final Snapshot current = snapshot;
+        if (current.adms.containsKey(systemId)) {
+            return current.adms.get(systemId);
         }
-        // if esi did not return data for that systemId
-        if (!systemAdms.containsKey(systemId)) {
-            return 5.0;
+        if (current.missing.contains(systemId)) {
+            return DEFAULT_ADM;
         }
-        return systemAdms.get(systemId);
+        return refreshForMiss(current, systemId);
     }
 
     @PostConstruct
@@ -48,15 +63,73 @@ public class AdmService {
     @Scheduled(cron = "0 30 */3 * * *")
     @Timed
     public void update() {
-        final ResponseEntity<AdmResponse[]> admResponse = restTemplate.getForEntity(URL, AdmResponse[].class, new HashMap<>());
+        jobRunner.run(JOB, this::refresh);
+    }
 
-        if (admResponse.getStatusCode() != HttpStatus.OK) {
-            LOG.info("ADM status code was {}. Aborting.", admResponse.getStatusCode());
+    private void refresh() {
+        synchronized (refreshLock) {
+            lastDownload = Instant.now();
+            final AdmResponse[] source = download();
+            if (null == source) {
+                return;
+            }
+            if (source == snapshot.source) {
+                LOG.info("ADM unchanged.");
+                return;
+            }
+            final IntDoubleHashMap adms = new IntDoubleHashMap(source.length);
+            for (AdmResponse adm : source) {
+                adms.put(adm.getSolarSystemId(), adm.getAdm());
+            }
+            snapshot = new Snapshot(source, adms, new IntHashSet());
+            LOG.info("ADM update complete.");
         }
+    }
+
+    private double refreshForMiss(final Snapshot seen, final int systemId) {
+        synchronized (refreshLock) {
+            Snapshot current = snapshot;
+            // another thread refreshed or recorded this miss while we were waiting
+            if (current == seen && Instant.now().isAfter(lastDownload.plus(MIN_MISS_REFRESH_INTERVAL))) {
+                update();
+                current = snapshot;
+            }
+            if (current.adms.containsKey(systemId)) {
+                return current.adms.get(systemId);
+            }
+            if (!current.missing.contains(systemId)) {
+                // if esi did not return data for that systemId
+                final IntHashSet missing = current.missing.clone();
+                missing.add(systemId);
+                snapshot = new Snapshot(current.source, current.adms, missing);
+            }
+            return DEFAULT_ADM;
+        }
+    }
+
+    private AdmResponse[] download() {
+        try {
+            final AdmResponse[] admResponse = conditionalGetClient.get(URL, AdmResponse[].class);
+            if (null == admResponse) {
+                LOG.info("ADM response was empty. Aborting.");
+            }
+            return admResponse;
+        } catch (RestClientException e) {
+            LOG.warn("ADM download failed. Keeping previous values.", e);
+            return null;
+        }
+    }
+
+    private static final class Snapshot {
+        // the response the snapshot was built from, an unchanged response is the same instance
+        private final AdmResponse[] source;
+        private final IntDoubleHashMap adms;
+        private final IntHashSet missing;
 
-        for (AdmResponse adm : admResponse.getBody()) {
-            systemAdms.put(adm.getSolarSystemId(), adm.getAdm());
+        private Snapshot(final AdmResponse[] source, final IntDoubleHashMap adms, final IntHashSet missing) {
+            this.source = source;
+            this.adms = adms;
+            this.missing = missing;
         }
-        LOG.info("ADM update complete.");
     }
 }
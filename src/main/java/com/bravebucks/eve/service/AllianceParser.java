@@ -1,53 +1,132 @@
 package com.bravebucks.eve.service;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.stream.Collectors;
 
 import com.bravebucks.eve.domain.User;
+import com.bravebucks.eve.domain.esi.CharacterAffiliation;
 import com.bravebucks.eve.domain.esi.CharacterInfoResponse;
 import com.bravebucks.eve.repository.UserRepository;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
 import com.codahale.metrics.annotation.Timed;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.scheduling.annotation.Async;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpMethod;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 import org.springframework.web.client.HttpClientErrorException;
-import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.RestClientException;
 import org.springframework.web.client.RestTemplate;
 
 @Component
 public class AllianceParser {
 
     private static final Logger log = LoggerFactory.getLogger(AllianceParser.class);
+    private static final String JOB = "alliance-parser";
+    private static final String AFFILIATION_URL = "https://esi.evetech.net/v1/characters/affiliation/";
 
     private final UserRepository userRepository;
+    private final ConditionalGetClient conditionalGetClient;
     private final RestTemplate restTemplate;
+    private final JobRunner jobRunner;
+    private final Meter checkedMeter;
+    private final Meter changedMeter;
+    private final Meter skippedMeter;
 
     public AllianceParser(final UserRepository userRepository,
-                          final RestTemplate restTemplate) {
+                          final ConditionalGetClient conditionalGetClient,
+                          final RestTemplate restTemplate,
+                          final JobRunner jobRunner,
+                          final MetricRegistry metricRegistry) {
         this.userRepository = userRepository;
+        this.conditionalGetClient = conditionalGetClient;
         this.restTemplate = restTemplate;
+        this.jobRunner = jobRunner;
+        checkedMeter = metricRegistry.meter(MetricRegistry.name(AllianceParser.class, "checked"));
+        changedMeter = metricRegistry.meter(MetricRegistry.name(AllianceParser.class, "changed"));
+        skippedMeter = metricRegistry.meter(MetricRegistry.name(AllianceParser.class, "skipped"));
     }
 
-    @Async
+    /**
+     * Resolves the alliances of all users with the bulk affiliation endpoint and writes back only the users whose
+     * alliance changed, in a single bulk update.
+     */
     @Scheduled(cron = "0 0 9 * * *")
     @Timed
     public void updateAlliances() {
-        userRepository.findAll().forEach(this::updateAllianceForUser);
+        jobRunner.runOnOneNode(JOB, this::updateAllAlliances);
+    }
+
+    private void updateAllAlliances() {
+        final Map<Integer, List<User>> usersByCharacterId = userRepository.findAllByCharacterIdNotNull().stream()
+            .collect(Collectors.groupingBy(user -> user.getCharacterId().intValue()));
+
+        final Map<String, Integer> changedAllianceIds = new HashMap<>();
+        for (final List<Integer> chunk : Chunks.of(new ArrayList<>(usersByCharacterId.keySet()),
+                                                   Chunks.ESI_MAX_IDS)) {
+            for (final CharacterAffiliation affiliation : getAffiliations(chunk)) {
+                for (final User user : usersByCharacterId.getOrDefault(affiliation.getCharacterId(),
+                                                                       Collections.emptyList())) {
+                    checkedMeter.mark();
+                    if (!Objects.equals(user.getAllianceId(), affiliation.getAllianceId())) {
+                        changedAllianceIds.put(user.getId(), affiliation.getAllianceId());
+                    }
+                }
+            }
+        }
+
+        userRepository.updateAllianceIds(changedAllianceIds);
+        changedMeter.mark(changedAllianceIds.size());
+        log.info("Checked alliances of {} characters, {} users changed.", usersByCharacterId.size(),
+                 changedAllianceIds.size());
+    }
+
+    /**
+     * ESI rejects the whole request with a 4xx if a single ID is invalid, e.g. a biomassed character. Such a chunk is
+     * bisected until the offending IDs are isolated, so only those are skipped.
+     */
+    private List<CharacterAffiliation> getAffiliations(final List<Integer> characterIds) {
+        try {
+            final CharacterAffiliation[] affiliations = restTemplate.exchange(AFFILIATION_URL, HttpMethod.POST,
+                                                                              new HttpEntity<>(characterIds),
+                                                                              CharacterAffiliation[].class).getBody();
+            return null == affiliations ? Collections.emptyList() : Arrays.asList(affiliations);
+        } catch (HttpClientErrorException ex) {
+            if (characterIds.size() == 1) {
+                log.warn("Skipping character {}, ESI answered {}.", characterIds.get(0), ex.getStatusCode());
+                skippedMeter.mark();
+                return Collections.emptyList();
+            }
+            final int half = characterIds.size() / 2;
+            final List<CharacterAffiliation> affiliations = new ArrayList<>();
+            affiliations.addAll(getAffiliations(characterIds.subList(0, half)));
+            affiliations.addAll(getAffiliations(characterIds.subList(half, characterIds.size())));
+            return affiliations;
+        } catch (RestClientException ex) {
+            log.error("Failed to retrieve affiliations for {} characters.", characterIds.size(), ex);
+            skippedMeter.mark(characterIds.size());
+            return Collections.emptyList();
+        }
     }
 
     public void updateAllianceForUser(final User user) {
         final String uri = "https://esi.evetech.net/v4/characters/" + user.getCharacterId() + "/";
         try {
-            final CharacterInfoResponse characterInfo = restTemplate.getForObject(uri, CharacterInfoResponse.class,
-                                                                                  new HashMap<>());
+            final CharacterInfoResponse characterInfo = conditionalGetClient.get(uri, CharacterInfoResponse.class);
             if (!Objects.equals(user.getAllianceId(), characterInfo.getAllianceId())) {
                 user.setAllianceId(characterInfo.getAllianceId());
                 userRepository.save(user);
             }
-        } catch (HttpClientErrorException | HttpServerErrorException ex) {
+        } catch (RestClientException ex) {
             log.error("Failed to retrieve character info for {}.", user.getCharacterId(), ex);
         }
     }
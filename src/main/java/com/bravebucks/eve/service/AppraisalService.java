@@ -0,0 +1,194 @@
+package com.bravebucks.eve.service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import com.bravebucks.eve.config.ApplicationProperties;
+import com.bravebucks.eve.domain.Appraisal;
+import com.bravebucks.eve.domain.ItemWithQuantity;
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+
+import org.springframework.stereotype.Service;
+
+/**
+ * Appraises items with {@link LocalAppraiser} once market prices are loaded, and through {@link EvepraisalClient}
+ * until then, and remembers the results.
+ * <p>
+ * Results are cached in a size-bounded LRU keyed by a hash of the normalized raw text, so the same items in any order
+ * and with any blank lines are appraised once per TTL. When an appraisal comes back with additional lines and the
+ * result of its previous raw text is still cached, only those lines are appraised and added to the cached result.
+ */
+@Service
+public class AppraisalService {
+
+    private final LocalAppraiser localAppraiser;
+    private final EvepraisalClient evepraisalClient;
+    private final int maxSize;
+    private final Duration ttl;
+
+    private final Map<String, Entry> entries;
+    private final Meter hits;
+    private final Meter misses;
+
+    public AppraisalService(final LocalAppraiser localAppraiser,
+                            final EvepraisalClient evepraisalClient,
+                            final ApplicationProperties applicationProperties,
+                            final MetricRegistry metricRegistry) {
+        this.localAppraiser = localAppraiser;
+        this.evepraisalClient = evepraisalClient;
+        maxSize = applicationProperties.getAppraisals().getMaxSize();
+        ttl = Duration.ofSeconds(applicationProperties.getAppraisals().getTtl());
+
+        hits = metricRegistry.meter(MetricRegistry.name(AppraisalService.class, "hits"));
+        misses = metricRegistry.meter(MetricRegistry.name(AppraisalService.class, "misses"));
+        entries = new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(final Map.Entry<String, Entry> eldest) {
+                return size() > maxSize;
+            }
+        };
+        metricRegistry.register(MetricRegistry.name(AppraisalService.class, "size"), (Gauge<Integer>) this::size);
+    }
+
+    /**
+     * Adds the additional raw text of the appraisal to its raw text and fills in link, total buy value and items.
+     * The link points to the evepraisal result of the lines appraised last, it is {@code null} for local appraisals.
+     * Total buy value and items sent with the appraisal are ignored, the result is built from cached results only.
+     *
+     * @throws org.springframework.web.client.RestClientException if evepraisal could not be reached
+     */
+    public void appraise(final Appraisal appraisal) {
+        final String previousRaw = appraisal.getRaw();
+        final String additionalRaw = appraisal.getAdditionalRaw();
+        appraisal.updateRaw();
+
+        final String key = key(appraisal.getRaw());
+        Appraisal result = getCached(key);
+        if (null == result) {
+            final Appraisal previous = null == previousRaw || null == additionalRaw
+                                       || normalize(additionalRaw).isEmpty() ? null : getCached(key(previousRaw));
+            if (null != previous) {
+                result = add(appraisal.getRaw(), previous, getOrAppraise(additionalRaw));
+            } else {
+                result = getOrAppraise(appraisal.getRaw());
+            }
+            put(key, result);
+        }
+
+        appraisal.setLink(result.getLink());
+        appraisal.setTotalBuy(result.getTotalBuy());
+        appraisal.setItems(new ArrayList<>(result.getItems()));
+    }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    private Appraisal getOrAppraise(final String raw) {
+        final String key = key(raw);
+        final Appraisal cached = getCached(key);
+        if (null != cached) {
+            return cached;
+        }
+        final Appraisal appraised = localAppraiser.isReady() ? localAppraiser.appraise(raw)
+                                                             : evepraisalClient.appraise(raw);
+        put(key, appraised);
+        return appraised;
+    }
+
+    private Appraisal getCached(final String key) {
+        final Instant now = Instant.now();
+        synchronized (entries) {
+            final Entry entry = entries.get(key);
+            if (null != entry && entry.expiry.isAfter(now)) {
+                hits.mark();
+                return entry.appraisal;
+            }
+        }
+        misses.mark();
+        return null;
+    }
+
+    private void put(final String key, final Appraisal appraisal) {
+        synchronized (entries) {
+            entries.put(key, new Entry(appraisal, Instant.now().plus(ttl)));
+        }
+    }
+
+    private static Appraisal add(final String raw, final Appraisal previous, final Appraisal increment) {
+        final Map<Integer, ItemWithQuantity> items = new LinkedHashMap<>();
+        for (final ItemWithQuantity item : previous.getItems()) {
+            items.merge(item.getTypeID(), copy(item), AppraisalService::sum);
+        }
+        for (final ItemWithQuantity item : increment.getItems()) {
+            items.merge(item.getTypeID(), copy(item), AppraisalService::sum);
+        }
+
+        final Appraisal result = new Appraisal(raw);
+        result.setLink(increment.getLink());
+        result.setTotalBuy(previous.getTotalBuy() + increment.getTotalBuy());
+        result.setItems(items.values().stream()
+                             .sorted(Comparator.comparing(ItemWithQuantity::getTypeName))
+                             .collect(Collectors.toList()));
+        return result;
+    }
+
+    private static ItemWithQuantity copy(final ItemWithQuantity item) {
+        return new ItemWithQuantity(item.getTypeName(), item.getTypeID(),
+                                    null == item.getQuantity() ? 0 : item.getQuantity());
+    }
+
+    private static ItemWithQuantity sum(final ItemWithQuantity first, final ItemWithQuantity second) {
+        return new ItemWithQuantity(first.getTypeName(), first.getTypeID(),
+                                    first.getQuantity() + second.getQuantity());
+    }
+
+    /**
+     * @return the non-blank lines of the raw text, trimmed and sorted
+     */
+    static String normalize(final String raw) {
+        return Arrays.stream(raw.split("\\R"))
+                     .map(String::trim)
+                     .filter(line -> !line.isEmpty())
+                     .sorted()
+                     .collect(Collectors.joining("\n"));
+    }
+
+    private static String key(final String raw) {
+        try {
+            final byte[] hash = MessageDigest.getInstance("SHA-256")
+                                             .digest(normalize(raw).getBytes(StandardCharsets.UTF_8));
+            final StringBuilder key = new StringBuilder(hash.length * 2);
+            for (final byte b : hash) {
+                key.append(String.format("%02x", b));
+            }
+            return key.toString();
+        } catch (final NoSuchAlgorithmException e) {
+            // every JVM implements SHA-256
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static final class Entry {
+        private final Appraisal appraisal;
+        private final Instant expiry;
+
+        private Entry(final Appraisal appraisal, final Instant expiry) {
+            this.appraisal = appraisal;
+            this.expiry = expiry;
+        }
+    }
+}
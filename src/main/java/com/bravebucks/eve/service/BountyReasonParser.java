@@ -0,0 +1,59 @@
+package com.bravebucks.eve.service;
+
+/**
+ * Sums the kill counts in the reason of a {@code bounty_prizes} wallet journal entry.
+ * <p>
+ * The reason lists the killed NPC types with their counts, e.g. {@code "23295: 1,23303: 2"}. It is scanned once
+ * without creating intermediate strings or arrays. Malformed parts, such as a type without a count or non-numeric
+ * counts, do not add to the sum.
+ */
+public final class BountyReasonParser {
+
+    // larger counts would overflow with the next digit
+    private static final int MAX_COUNT = (Integer.MAX_VALUE - 9) / 10;
+
+    private BountyReasonParser() {
+    }
+
+    public static int countKills(final CharSequence reason) {
+        if (null == reason) {
+            return 0;
+        }
+        int kills = 0;
+        // state of the current "type: count" part
+        int colons = 0;
+        int count = 0;
+        int digits = 0;
+        boolean countEnded = false;
+        boolean malformed = false;
+        for (int i = 0; i < reason.length(); i++) {
+            final char c = reason.charAt(i);
+            if (c == ',') {
+                if (colons == 1 && digits > 0 && !malformed) {
+                    kills += count;
+                }
+                colons = 0;
+                count = 0;
+                digits = 0;
+                countEnded = false;
+                malformed = false;
+            } else if (c == ':') {
+                colons++;
+                malformed |= colons > 1;
+            } else if (colons == 1 && !malformed) {
+                if (c >= '0' && c <= '9' && !countEnded && count <= MAX_COUNT) {
+                    count = count * 10 + (c - '0');
+                    digits++;
+                } else if (c == ' ') {
+                    countEnded = digits > 0;
+                } else {
+                    malformed = true;
+                }
+            }
+        }
+        if (colons == 1 && digits > 0 && !malformed) {
+            kills += count;
+        }
+        return kills;
+    }
+}
@@ -0,0 +1,31 @@
+package com.bravebucks.eve.service;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Splits ID lists for ESI bulk endpoints, which accept a limited number of IDs per request.
+ */
+final class Chunks {
+
+    static final int ESI_MAX_IDS = 1000;
+
+    private Chunks() {
+    }
+
+    /**
+     * @return consecutive views of at most {@code maxChunkSize} elements each, backed by the given list
+     */
+    static <T> List<List<T>> of(final List<T> elements, final int maxChunkSize) {
+        final List<List<T>> chunks = new ArrayList<>();
+        for (int i = 0; i < elements.size(); i += maxChunkSize) {
+            chunks.add(elements.subList(i, i + getNextChunkSize(elements.size(), i, maxChunkSize)));
+        }
+        return chunks;
+    }
+
+    private static int getNextChunkSize(int size, int current, int maxChunkSize) {
+        boolean isEnd = current + maxChunkSize > size;
+        return isEnd ? size - current : maxChunkSize;
+    }
+}
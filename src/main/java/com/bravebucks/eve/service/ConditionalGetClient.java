@@ -0,0 +1,112 @@
+package com.bravebucks.eve.service;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Service;
+import org.springframework.web.client.RestTemplate;
+
+/**
+ * Performs unauthenticated GET requests against ESI and remembers the last body per URL.
+ * <p>
+ * A cached body is returned without any request until the {@code Expires} header of its response has passed.
+ * Afterwards the request carries {@code If-None-Match} and {@code If-Modified-Since}, and a {@code 304 Not Modified}
+ * returns the very same body instance without deserializing anything. Callers can compare bodies by identity to
+ * detect unchanged data.
+ */
+@Service
+public class ConditionalGetClient {
+
+    private final RestTemplate restTemplate;
+    private final Map<String, CachedResponse> responses = new ConcurrentHashMap<>();
+    private final Meter fresh;
+    private final Meter notModified;
+    private final Meter downloads;
+
+    public ConditionalGetClient(final RestTemplate restTemplate, final MetricRegistry metricRegistry) {
+        this.restTemplate = restTemplate;
+        fresh = metricRegistry.meter(MetricRegistry.name(ConditionalGetClient.class, "fresh"));
+        notModified = metricRegistry.meter(MetricRegistry.name(ConditionalGetClient.class, "not-modified"));
+        downloads = metricRegistry.meter(MetricRegistry.name(ConditionalGetClient.class, "downloads"));
+        metricRegistry.register(MetricRegistry.name(ConditionalGetClient.class, "size"),
+                                (Gauge<Integer>) responses::size);
+    }
+
+    /**
+     * @return the body of the URL, or {@code null} if ESI answered without one
+     * @throws org.springframework.web.client.RestClientException like {@link RestTemplate} for failed requests
+     */
+    public <T> T get(final String url, final Class<T> type) {
+        final CachedResponse cached = responses.get(url);
+        final boolean conditional = null != cached && type.isInstance(cached.body);
+        if (conditional && cached.expires > System.currentTimeMillis()) {
+            fresh.mark();
+            return type.cast(cached.body);
+        }
+
+        final ResponseEntity<T> response = restTemplate.exchange(url, HttpMethod.GET,
+                                                                 new HttpEntity<>(conditional ? validators(cached)
+                                                                                              : new HttpHeaders()),
+                                                                 type);
+        final HttpHeaders headers = response.getHeaders();
+        if (conditional && response.getStatusCode() == HttpStatus.NOT_MODIFIED) {
+            notModified.mark();
+            // a 304 may carry updated validators and expiry, older ones stay valid otherwise
+            responses.put(url, new CachedResponse(cached.body,
+                                                  null != headers.getETag() ? headers.getETag() : cached.eTag,
+                                                  headers.getLastModified() > 0 ? headers.getLastModified()
+                                                                                : cached.lastModified,
+                                                  headers.getExpires()));
+            return type.cast(cached.body);
+        }
+
+        downloads.mark();
+        final T body = response.getBody();
+        if (null == body) {
+            responses.remove(url);
+        } else {
+            responses.put(url, new CachedResponse(body, headers.getETag(), headers.getLastModified(),
+                                                  headers.getExpires()));
+        }
+        return body;
+    }
+
+    public void clear() {
+        responses.clear();
+    }
+
+    private static HttpHeaders validators(final CachedResponse cached) {
+        final HttpHeaders headers = new HttpHeaders();
+        if (null != cached.eTag) {
+            headers.setIfNoneMatch(cached.eTag);
+        }
+        if (cached.lastModified > 0) {
+            headers.setIfModifiedSince(cached.lastModified);
+        }
+        return headers;
+    }
+
+    private static final class CachedResponse {
+        private final Object body;
+        private final String eTag;
+        private final long lastModified;
+        // epoch millis, -1 if the response did not allow reuse without validation
+        private final long expires;
+
+        private CachedResponse(final Object body, final String eTag, final long lastModified, final long expires) {
+            this.body = body;
+            this.eTag = eTag;
+            this.lastModified = lastModified;
+            this.expires = expires;
+        }
+    }
+}
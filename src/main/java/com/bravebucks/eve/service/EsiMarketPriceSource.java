@@ -0,0 +1,67 @@
+package com.bravebucks.eve.service;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.bravebucks.eve.domain.esi.MarketOrder;
+import com.carrotsearch.hppc.cursors.IntCursor;
+
+import org.springframework.http.HttpMethod;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Service;
+import org.springframework.web.client.RestTemplate;
+
+/**
+ * Builds {@link MarketPrices} from all orders in The Forge that are located at Jita IV - Moon 4 - Caldari Navy
+ * Assembly Plant. Names are looked up only for types the previous snapshot did not know yet.
+ */
+@Service
+public class EsiMarketPriceSource implements MarketPriceSource {
+
+    private static final String URL = "https://esi.evetech.net/v1/markets/10000002/orders/?order_type=all&page={page}";
+    private static final long JITA_4_4 = 60003760L;
+
+    private final RestTemplate restTemplate;
+    private final UniverseNamesClient universeNamesClient;
+
+    public EsiMarketPriceSource(final RestTemplate restTemplate, final UniverseNamesClient universeNamesClient) {
+        this.restTemplate = restTemplate;
+        this.universeNamesClient = universeNamesClient;
+    }
+
+    @Override
+    public MarketPrices load(final MarketPrices previous) {
+        final MarketPrices.Builder builder = MarketPrices.builder();
+        int pages = 1;
+        for (int page = 1; page <= pages; page++) {
+            final ResponseEntity<MarketOrder[]> response = restTemplate.exchange(URL, HttpMethod.GET, null,
+                                                                                 MarketOrder[].class, page);
+            final String xPages = response.getHeaders().getFirst("X-Pages");
+            if (null != xPages) {
+                pages = Integer.parseInt(xPages);
+            }
+            if (null == response.getBody()) {
+                continue;
+            }
+            for (final MarketOrder order : response.getBody()) {
+                if (order.getLocationId() == JITA_4_4) {
+                    builder.order(order.getTypeId(), order.isBuyOrder(), order.getPrice(), order.getVolumeRemain());
+                }
+            }
+        }
+
+        final List<Integer> unnamed = new ArrayList<>();
+        for (final IntCursor typeId : builder.typeIds()) {
+            final String name = previous.getName(typeId.value);
+            if (null == name) {
+                unnamed.add(typeId.value);
+            } else {
+                builder.name(typeId.value, name);
+            }
+        }
+        if (!unnamed.isEmpty()) {
+            universeNamesClient.get(unnamed).forEach(builder::name);
+        }
+        return builder.build();
+    }
+}
@@ -0,0 +1,46 @@
+package com.bravebucks.eve.service;
+
+import java.util.Optional;
+
+import com.bravebucks.eve.domain.esi.SearchResponse;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.web.client.RestClientException;
+import org.springframework.web.client.RestTemplate;
+
+/**
+ * Resolves names to IDs with the ESI search endpoint.
+ */
+@Service
+public class EsiSearchClient {
+
+    private static final Logger log = LoggerFactory.getLogger(EsiSearchClient.class);
+    private static final String SOLAR_SYSTEM_URL = "https://esi.evetech.net/v2/search/?categories=solar_system"
+                                                   + "&datasource=tranquility&language=en-us&search={search}"
+                                                   + "&strict=true";
+
+    private final RestTemplate restTemplate;
+
+    public EsiSearchClient(final RestTemplate restTemplate) {
+        this.restTemplate = restTemplate;
+    }
+
+    /**
+     * @return the ID of the solar system with exactly that name, empty if there is none or ESI failed
+     */
+    public Optional<Long> findSolarSystemId(final String systemName) {
+        try {
+            final SearchResponse response = restTemplate.getForObject(SOLAR_SYSTEM_URL, SearchResponse.class,
+                                                                      systemName);
+            if (null == response || null == response.getSolarSystem() || response.getSolarSystem().isEmpty()) {
+                return Optional.empty();
+            }
+            return Optional.of(response.getSolarSystem().get(0));
+        } catch (final RestClientException e) {
+            log.warn("Failed to search solar system {}: {}", systemName, e.getMessage());
+            return Optional.empty();
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package com.bravebucks.eve.service;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import com.bravebucks.eve.domain.Appraisal;
+import com.bravebucks.eve.domain.ItemWithQuantity;
+import com.bravebucks.eve.domain.evepraisal.AppraisalResult;
+
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+import org.springframework.util.LinkedMultiValueMap;
+import org.springframework.util.MultiValueMap;
+import org.springframework.web.client.RestClientException;
+import org.springframework.web.client.RestTemplate;
+
+/**
+ * Appraises items with evepraisal.com.
+ */
+@Service
+public class EvepraisalClient {
+
+    private static final String APPRAISAL_URL = "http://evepraisal.com/appraisal";
+    private static final String RESULT_TITLE = "Evepraisal - Appraisal Result ";
+
+    private final RestTemplate restTemplate;
+
+    public EvepraisalClient(final RestTemplate restTemplate) {
+        this.restTemplate = restTemplate;
+    }
+
+    /**
+     * Submits the raw items and fetches the result once.
+     *
+     * @return an appraisal of the raw items with its link, total buy value and items sorted by name
+     * @throws RestClientException if evepraisal could not be reached or did not return a result
+     */
+    public Appraisal appraise(final String raw) {
+        final String link = getLinkFromRaw(raw);
+        final AppraisalResult result = restTemplate.getForObject(link + ".json", AppraisalResult.class);
+        if (null == result) {
+            throw new RestClientException("Evepraisal returned no result for " + link);
+        }
+        final Appraisal appraisal = new Appraisal(raw);
+        appraisal.setLink(link);
+        appraisal.setTotalBuy(null == result.getTotals() ? 0 : result.getTotals().getBuy());
+        appraisal.setItems(getItems(result));
+        return appraisal;
+    }
+
+    private String getLinkFromRaw(final String raw) {
+        final HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_FORM_URLENCODED);
+        final MultiValueMap<String, String> form = new LinkedMultiValueMap<>();
+        form.add("raw_textarea", raw);
+        form.add("market", "jita");
+
+        final String body = restTemplate.postForObject(APPRAISAL_URL, new HttpEntity<>(form, headers), String.class);
+        if (null == body || !body.contains(RESULT_TITLE)) {
+            throw new RestClientException("Evepraisal did not return an appraisal result page.");
+        }
+        final String listingId = body.split(RESULT_TITLE)[1].split(" ")[0];
+        return "http://evepraisal.com/a/" + listingId;
+    }
+
+    private static List<ItemWithQuantity> getItems(final AppraisalResult result) {
+        if (null == result.getItems()) {
+            return new ArrayList<>();
+        }
+        return result.getItems().stream()
+                     .map(item -> new ItemWithQuantity(item.getTypeName(), item.getTypeId(), item.getQuantity()))
+                     .sorted(Comparator.comparing(ItemWithQuantity::getTypeName))
+                     .collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,169 @@
+package com.bravebucks.eve.service;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import static java.util.stream.Collectors.toList;
+
+import javax.annotation.PostConstruct;
+
+import com.bravebucks.eve.domain.HighscoreEntry;
+import com.bravebucks.eve.domain.enumeration.TransactionType;
+import com.mongodb.DBObject;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationExpression;
+import org.springframework.data.mongodb.core.aggregation.ComparisonOperators;
+import org.springframework.data.mongodb.core.aggregation.ConditionalOperators;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.util.DigestUtils;
+import static org.springframework.data.mongodb.core.aggregation.Aggregation.group;
+import static org.springframework.data.mongodb.core.aggregation.Aggregation.match;
+import static org.springframework.data.mongodb.core.aggregation.Aggregation.newAggregation;
+import static org.springframework.data.mongodb.core.aggregation.Aggregation.project;
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+
+/**
+ * Precomputed top 10 leaderboards for kills and ratting.
+ * <p>
+ * A single aggregation sums the amounts per user and type for all windows at once, the results are kept in memory
+ * until the next refresh. Leaderboards are refreshed after every payout calculation and once an hour, so the sliding
+ * windows move along.
+ */
+@Service
+public class HighscoreService {
+
+    static final int SIZE = 10;
+
+    private static final Logger log = LoggerFactory.getLogger(HighscoreService.class);
+    private static final String JOB = "highscores";
+
+    public enum Window {
+        LAST_7_DAYS("week"), LAST_30_DAYS("month"), MONTH_TO_DATE("monthToDate");
+
+        private final String field;
+
+        Window(final String field) {
+            this.field = field;
+        }
+    }
+
+    private final MongoTemplate mongoTemplate;
+    private final JobRunner jobRunner;
+
+    private volatile Map<TransactionType, Map<Window, Leaderboard>> leaderboards = Collections.emptyMap();
+
+    public HighscoreService(final MongoTemplate mongoTemplate, final JobRunner jobRunner) {
+        this.mongoTemplate = mongoTemplate;
+        this.jobRunner = jobRunner;
+    }
+
+    /**
+     * @return the leaderboard of the given type and window, or null for types without a leaderboard
+     */
+    public Leaderboard getLeaderboard(final TransactionType type, final Window window) {
+        final Map<Window, Leaderboard> windows = leaderboards.get(type);
+        return null == windows ? null : windows.get(window);
+    }
+
+    @PostConstruct
+    @Scheduled(cron = "0 5 * * * *")
+    public void refresh() {
+        jobRunner.run(JOB, () -> refresh(Instant.now()));
+    }
+
+    void refresh(final Instant now) {
+        final Date week = Date.from(now.minus(7, ChronoUnit.DAYS));
+        final Date month = Date.from(now.minus(30, ChronoUnit.DAYS));
+        final Date monthStart = Date.from(now.atOffset(ZoneOffset.UTC).toLocalDate().withDayOfMonth(1)
+                                             .atStartOfDay().toInstant(ZoneOffset.UTC));
+        final Date start = month.before(monthStart) ? month : monthStart;
+
+        final Aggregation aggregation = newAggregation(
+            match(where("instant").gte(start).and("type").in(TransactionType.KILL.name(),
+                                                              TransactionType.RATTING.name())),
+            project("user", "type").and(amountSince(week)).as(Window.LAST_7_DAYS.field)
+                                   .and(amountSince(month)).as(Window.LAST_30_DAYS.field)
+                                   .and(amountSince(monthStart)).as(Window.MONTH_TO_DATE.field),
+            group("user", "type").sum(Window.LAST_7_DAYS.field).as(Window.LAST_7_DAYS.field)
+                                 .sum(Window.LAST_30_DAYS.field).as(Window.LAST_30_DAYS.field)
+                                 .sum(Window.MONTH_TO_DATE.field).as(Window.MONTH_TO_DATE.field));
+
+        final Map<TransactionType, Map<Window, List<HighscoreEntry>>> sums = new EnumMap<>(TransactionType.class);
+        final List<DBObject> rows = mongoTemplate.aggregate(aggregation, "transaction", DBObject.class)
+                                                 .getMappedResults();
+        for (final DBObject row : rows) {
+            final DBObject id = (DBObject) row.get("_id");
+            final String user = (String) id.get("user");
+            final TransactionType type = TransactionType.valueOf((String) id.get("type"));
+            for (final Window window : Window.values()) {
+                final double amount = ((Number) row.get(window.field)).doubleValue();
+                if (amount > 0) {
+                    sums.computeIfAbsent(type, t -> new EnumMap<>(Window.class))
+                        .computeIfAbsent(window, w -> new ArrayList<>())
+                        .add(new HighscoreEntry(user, amount));
+                }
+            }
+        }
+
+        final Map<TransactionType, Map<Window, Leaderboard>> refreshed = new EnumMap<>(TransactionType.class);
+        for (final TransactionType type : new TransactionType[]{TransactionType.KILL, TransactionType.RATTING}) {
+            final Map<Window, Leaderboard> windows = new EnumMap<>(Window.class);
+            for (final Window window : Window.values()) {
+                final List<HighscoreEntry> entries = sums.getOrDefault(type, Collections.emptyMap())
+                                                         .getOrDefault(window, Collections.emptyList());
+                windows.put(window, new Leaderboard(entries.stream()
+                                                           .sorted(Comparator.comparingDouble(HighscoreEntry::getAmount)
+                                                                             .reversed())
+                                                           .limit(SIZE)
+                                                           .collect(toList())));
+            }
+            refreshed.put(type, windows);
+        }
+        leaderboards = refreshed;
+        log.debug("Refreshed highscores from {} user totals.", rows.size());
+    }
+
+    private static AggregationExpression amountSince(final Date date) {
+        return ConditionalOperators.when(ComparisonOperators.valueOf("instant").greaterThanEqualToValue(date))
+                                   // untyped aggregations render the plain name as a string literal
+                                   .thenValueOf("$amount")
+                                   .otherwise(0);
+    }
+
+    /**
+     * An immutable leaderboard with an ETag derived from its content.
+     */
+    public static final class Leaderboard {
+
+        private final List<HighscoreEntry> entries;
+        private final String etag;
+
+        Leaderboard(final List<HighscoreEntry> entries) {
+            this.entries = Collections.unmodifiableList(entries);
+            final StringBuilder content = new StringBuilder();
+            entries.forEach(e -> content.append(e.getName()).append('=').append(e.getAmount()).append(';'));
+            etag = DigestUtils.md5DigestAsHex(content.toString().getBytes(StandardCharsets.UTF_8));
+        }
+
+        public List<HighscoreEntry> getEntries() {
+            return entries;
+        }
+
+        public String getEtag() {
+            return etag;
+        }
+    }
+}
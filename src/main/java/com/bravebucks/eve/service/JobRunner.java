@@ -0,0 +1,130 @@
+package com.bravebucks.eve.service;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BooleanSupplier;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.stereotype.Service;
+
+/**
+ * Runs scheduled jobs one at a time per job.
+ * <p>
+ * A trigger that arrives while the same job is still running on this node is skipped, not queued. Every job exports
+ * its run duration, skipped and failed runs and the time of its last successful run as metrics under
+ * {@code com.bravebucks.eve.service.JobRunner.<job>}.
+ */
+@Service
+public class JobRunner {
+
+    private static final Logger log = LoggerFactory.getLogger(JobRunner.class);
+
+    private final SchedulerLock schedulerLock;
+    private final MetricRegistry metricRegistry;
+    private final TaskExecutor jobScheduler;
+    private final Map<String, Job> jobs = new ConcurrentHashMap<>();
+
+    public JobRunner(final SchedulerLock schedulerLock,
+                     final MetricRegistry metricRegistry,
+                     @Qualifier("jobScheduler") final TaskExecutor jobScheduler) {
+        this.schedulerLock = schedulerLock;
+        this.metricRegistry = metricRegistry;
+        this.jobScheduler = jobScheduler;
+    }
+
+    /**
+     * Runs the task unless the job is already running on this node.
+     *
+     * @return whether the task ran
+     */
+    public boolean run(final String job, final Runnable task) {
+        return execute(job, () -> {
+            task.run();
+            return true;
+        });
+    }
+
+    /**
+     * Runs the task unless the job is already running on this node, or another node holds its
+     * {@link SchedulerLock} lease.
+     *
+     * @return whether the task ran on this node
+     */
+    public boolean runOnOneNode(final String job, final Runnable task) {
+        return execute(job, () -> schedulerLock.runLocked(job, task));
+    }
+
+    /**
+     * @return whether the job is running on this node through {@link #runOnOneNode} and has held its lease so far,
+     * checked by long jobs before they write
+     */
+    public boolean holdsLease(final String job) {
+        return schedulerLock.isHeld(job);
+    }
+
+    /**
+     * Hands a manual trigger of a scheduled method to the job pool and returns immediately.
+     */
+    public void trigger(final Runnable scheduledMethod) {
+        jobScheduler.execute(scheduledMethod);
+    }
+
+    private boolean execute(final String name, final BooleanSupplier task) {
+        final Job job = jobs.computeIfAbsent(name, this::register);
+        if (!job.running.compareAndSet(false, true)) {
+            job.skipped.mark();
+            log.warn("Skipping {}, the previous run is still in progress.", name);
+            return false;
+        }
+        final long start = System.nanoTime();
+        try {
+            final boolean ran = task.getAsBoolean();
+            if (ran) {
+                job.duration.update(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                job.lastSuccess = System.currentTimeMillis();
+            } else {
+                job.skipped.mark();
+            }
+            return ran;
+        } catch (final RuntimeException e) {
+            job.failed.mark();
+            throw e;
+        } finally {
+            job.running.set(false);
+        }
+    }
+
+    private Job register(final String name) {
+        final Job job = new Job(metricRegistry.timer(MetricRegistry.name(JobRunner.class, name, "duration")),
+                                metricRegistry.meter(MetricRegistry.name(JobRunner.class, name, "skipped")),
+                                metricRegistry.meter(MetricRegistry.name(JobRunner.class, name, "failed")));
+        metricRegistry.register(MetricRegistry.name(JobRunner.class, name, "last-success"),
+                                (Gauge<Long>) () -> job.lastSuccess);
+        return job;
+    }
+
+    private static final class Job {
+        private final AtomicBoolean running = new AtomicBoolean();
+        private final Timer duration;
+        private final Meter skipped;
+        private final Meter failed;
+        // epoch millis, 0 until the first successful run on this node
+        private volatile long lastSuccess;
+
+        private Job(final Timer duration, final Meter skipped, final Meter failed) {
+            this.duration = duration;
+            this.skipped = skipped;
+            this.failed = failed;
+        }
+    }
+}
@@ -1,8 +1,9 @@
 package com.bravebucks.eve.service;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 import java.util.Map;
-import java.util.Objects;
 import java.util.stream.Collectors;
 
 import com.bravebucks.eve.domain.Killmail;
@@ -19,10 +20,10 @@ public class KillmailParser {
 
     private static final Logger log = LoggerFactory.getLogger(KillmailParser.class);
 
-    private final UniverseNamesClient namesClient;
+    private final UniverseNameCache nameCache;
 
-    public KillmailParser(final UniverseNamesClient namesClient) {
-        this.namesClient = namesClient;
+    public KillmailParser(final UniverseNameCache nameCache) {
+        this.nameCache = nameCache;
     }
 
     Killmail parseKillmail(final KillmailPackage killmailPackage) {
@@ -62,15 +63,26 @@ public class KillmailParser {
         result.setTotalValue((long) zkb.getTotalValue());
         result.setPoints(zkb.getPoints());
         result.setVictimId(victim.getCharacterId());
+        result.setVictimGroupId(victim.getGroupId());
         result.setShipTypeId(victim.getShipTypeId());
 
-        final Integer groupId = victim.getGroupId();
-        final Integer victimId = victim.getCharacterId();
-        final Map<Integer, String> names = namesClient.get(Arrays.asList(groupId, victimId));
-        result.setVictimGroupName(names.get(groupId));
-        result.setVictimName(names.get(victimId));
-
         return result;
     }
 
+    /**
+     * Sets victim and victim group names on all killmails, resolving every id of the batch at once.
+     */
+    void resolveNames(final List<Killmail> killmails) {
+        final List<Integer> ids = new ArrayList<>(killmails.size() * 2);
+        for (final Killmail killmail : killmails) {
+            ids.add(killmail.getVictimGroupId());
+            ids.add((int) killmail.getVictimId());
+        }
+        final Map<Integer, String> names = nameCache.get(ids);
+        for (final Killmail killmail : killmails) {
+            killmail.setVictimGroupName(names.get(killmail.getVictimGroupId()));
+            killmail.setVictimName(names.get((int) killmail.getVictimId()));
+        }
+    }
+
 }
@@ -1,99 +1,287 @@
 package com.bravebucks.eve.service;
 
+import java.time.Duration;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
 import static java.util.stream.Collectors.toList;
 
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import com.bravebucks.eve.config.ApplicationProperties;
 import com.bravebucks.eve.domain.Killmail;
 import com.bravebucks.eve.domain.zkb.KillmailPackage;
 import com.bravebucks.eve.domain.zkb.RedisQResponse;
 import com.bravebucks.eve.repository.KillmailRepository;
-import com.bravebucks.eve.repository.SolarSystemRepository;
-import com.bravebucks.eve.repository.UserRepository;
+import com.carrotsearch.hppc.LongHashSet;
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.scheduling.annotation.Async;
-import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.web.client.RestClientException;
 import org.springframework.web.client.RestTemplate;
 
+/**
+ * Streams killmails from zKillboard's RedisQ.
+ * <p>
+ * A listener thread keeps one long-poll open at all times and hands every package to a bounded queue. A consumer
+ * thread drains that queue in batches of up to {@code application.ingestion.batch-size} packages, or whatever
+ * arrived within {@code application.ingestion.flush-interval} milliseconds, and filters and saves them in one go.
+ * When the queue is full the listener blocks, leaving the backlog on zKillboard's side.
+ * <p>
+ * Only the node holding the {@code killmail-puller} lease of {@link SchedulerLock} listens, the others stand by.
+ */
 @Service
 public class KillmailPuller {
 
+    private static final String REDISQ_URL = "https://redisq.zkillboard.com/listen.php?ttw=10";
+    private static final long LISTEN_ERROR_BACKOFF = 5_000;
+    private static final long STANDBY_INTERVAL = 30_000;
+
     private final Logger log = LoggerFactory.getLogger(getClass());
-    private List<Integer> systems;
-    private List<Integer> playerIds;
 
     private final KillmailRepository killmailRepository;
-    private final UserRepository userRepository;
-    private final SolarSystemRepository solarSystemRepository;
+    private final RecentKillIds recentKillIds;
+    private final MembershipIndex membershipIndex;
     private final KillmailParser killmailParser;
     private final RestTemplate restTemplate;
     private final AdmService admService;
+    private final ApplicationProperties.Ingestion ingestion;
+    private final SchedulerLock.Lease lease;
+
+    private final BlockingQueue<KillmailPackage> queue;
+    private final Meter receivedMeter;
+    private final Meter savedMeter;
+    private final Histogram lagHistogram;
+    private volatile long lastLag;
+
+    private volatile boolean running;
+    private Thread listener;
+    private Thread consumer;
 
     public KillmailPuller(final KillmailRepository killmailRepository,
-                          final UserRepository userRepository,
-                          final SolarSystemRepository solarSystemRepository,
+                          final RecentKillIds recentKillIds,
+                          final MembershipIndex membershipIndex,
                           final KillmailParser killmailParser,
                           final RestTemplate restTemplate,
-                          final AdmService admService) {
+                          final AdmService admService,
+                          final SchedulerLock schedulerLock,
+                          final ApplicationProperties applicationProperties,
+                          final MetricRegistry metricRegistry) {
         this.killmailRepository = killmailRepository;
-        this.userRepository = userRepository;
-        this.solarSystemRepository = solarSystemRepository;
+        this.recentKillIds = recentKillIds;
+        this.membershipIndex = membershipIndex;
         this.killmailParser = killmailParser;
         this.restTemplate = restTemplate;
         this.admService = admService;
+        this.ingestion = applicationProperties.getIngestion();
+        lease = schedulerLock.lease("killmail-puller");
+
+        queue = new ArrayBlockingQueue<>(ingestion.getQueueCapacity());
+        metricRegistry.register(MetricRegistry.name(KillmailPuller.class, "queue-depth"),
+                                (Gauge<Integer>) queue::size);
+        metricRegistry.register(MetricRegistry.name(KillmailPuller.class, "lag-seconds"),
+                                (Gauge<Long>) () -> lastLag);
+        receivedMeter = metricRegistry.meter(MetricRegistry.name(KillmailPuller.class, "received"));
+        savedMeter = metricRegistry.meter(MetricRegistry.name(KillmailPuller.class, "saved"));
+        lagHistogram = metricRegistry.histogram(MetricRegistry.name(KillmailPuller.class, "lag"));
     }
 
-    @Async
-    @Scheduled(cron = "0 * * * * *")
-    public void cron() {
-        final List<KillmailPackage> packages = new ArrayList<>();
-        while (true) {
-            RedisQResponse response = restTemplate.getForObject("https://redisq.zkillboard.com/listen.php?ttw=1",
-                                                                RedisQResponse.class, new HashMap<>());
+    @PostConstruct
+    public void start() {
+        if (!ingestion.isEnabled()) {
+            log.info("Killmail ingestion is disabled.");
+            return;
+        }
+        running = true;
+        listener = startDaemon("redisq-listener", this::listen);
+        consumer = startDaemon("killmail-consumer", this::consume);
+    }
 
-            if (response.getKillmailPackage() == null || packages.size() >= 100) {
-                break;
-            } else {
-                log.info("Received a new killmail: {}", response.getKillmailPackage().getKillmail().getKillmailId());
-            }
+    @PreDestroy
+    public void stop() {
+        running = false;
+        if (null != listener) {
+            listener.interrupt();
+            lease.release();
+        }
+        if (null != consumer) {
+            consumer.interrupt();
+        }
+    }
+
+    private static Thread startDaemon(final String name, final Runnable runnable) {
+        final Thread thread = new Thread(runnable, name);
+        thread.setDaemon(true);
+        thread.start();
+        return thread;
+    }
 
-            packages.add(response.getKillmailPackage());
+    private void listen() {
+        while (running) {
+            if (!lease.isHeld()) {
+                // another node is listening, take over once its lease expires
+                if (!sleep(STANDBY_INTERVAL)) {
+                    return;
+                }
+                continue;
+            }
+            try {
+                final RedisQResponse response = restTemplate.getForObject(REDISQ_URL, RedisQResponse.class,
+                                                                          new HashMap<>());
+                if (null == response || null == response.getKillmailPackage()
+                    || null == response.getKillmailPackage().getKillmail()) {
+                    continue;
+                }
+                log.debug("Received a new killmail: {}", response.getKillmailPackage().getKillmail().getKillmailId());
+                receivedMeter.mark();
+                queue.put(response.getKillmailPackage());
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (final RestClientException e) {
+                log.warn("Listening on RedisQ failed, retrying in {} ms: {}", LISTEN_ERROR_BACKOFF, e.getMessage());
+                if (!sleep(LISTEN_ERROR_BACKOFF)) {
+                    return;
+                }
+            } catch (final RuntimeException e) {
+                // anything else would end the listener thread and with it the ingestion
+                log.error("Failed to receive a killmail package, retrying in {} ms.", LISTEN_ERROR_BACKOFF, e);
+                if (!sleep(LISTEN_ERROR_BACKOFF)) {
+                    return;
+                }
+            }
         }
+    }
 
-        log.info("Collected a total of {} killmail packages.", packages.size());
+    private void consume() {
+        final List<KillmailPackage> batch = new ArrayList<>(ingestion.getBatchSize());
+        while (running) {
+            try {
+                drainBatch(batch);
+                if (!batch.isEmpty()) {
+                    processBatch(batch);
+                }
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (final RuntimeException e) {
+                log.error("Failed to process a batch of {} killmail packages.", batch.size(), e);
+            } finally {
+                batch.clear();
+            }
+        }
+    }
 
-        if (packages.isEmpty()) {
+    /**
+     * Blocks until the batch is full or the flush interval since the first received package has passed.
+     */
+    void drainBatch(final List<KillmailPackage> batch) throws InterruptedException {
+        final int batchSize = ingestion.getBatchSize();
+        final KillmailPackage first = queue.poll(ingestion.getFlushInterval(), TimeUnit.MILLISECONDS);
+        if (null == first) {
             return;
         }
+        batch.add(first);
 
-        // required for isInBraveSystem
-        systems = solarSystemRepository.findAllByTrackPvp(true).stream()
-                                       .map(s -> s.getSystemId().intValue())
-                                       .collect(toList());
+        final long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(ingestion.getFlushInterval());
+        while (batch.size() < batchSize) {
+            queue.drainTo(batch, batchSize - batch.size());
+            final long remaining = deadline - System.nanoTime();
+            if (batch.size() >= batchSize || remaining <= 0) {
+                break;
+            }
+            final KillmailPackage next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+            if (null == next) {
+                break;
+            }
+            batch.add(next);
+        }
+    }
+
+    void processBatch(final List<KillmailPackage> packages) {
+        log.info("Processing a batch of {} killmail packages.", packages.size());
+        packages.forEach(this::recordLag);
 
-        playerIds = userRepository.findAll().stream()
-                                  .map(u -> u.getCharacterId().intValue())
-                                  .collect(toList());
+        final List<Killmail> candidates = packages.stream()
+                                                  .peek(p -> log.debug("Processing package: {}", p))
+                                                  .map(killmailParser::parseKillmail)
+                                                  .filter(Objects::nonNull)
+                                                  .filter(this::filterKillmail)
+                                                  .collect(toList());
+        killmailParser.resolveNames(candidates);
+        candidates.removeIf(kill -> !isVictimNotBrave(kill));
 
-        final List<Killmail> killmails = packages.stream()
-                                                 .peek(p -> log.debug("Processing package: {}", p))
-                                                 .map(killmailParser::parseKillmail)
-                                                 .filter(Objects::nonNull)
-                                                 .filter(this::filterKillmail)
-                                                 .peek(kill -> kill.setPoints(getPoints(kill.getPoints(), kill.getSolarSystemId())))
-                                                 .collect(toList());
+        final List<Killmail> killmails = removeAlreadyRetrieved(candidates);
+        killmails.forEach(kill -> kill.setPoints(getPoints(kill.getPoints(), kill.getSolarSystemId())));
 
         log.info("Saving {} new killmails.", killmails.size());
         if (killmails.isEmpty()) {
             return;
         }
 
-        killmailRepository.save(killmails);
+        final int inserted = killmailRepository.insertIgnoringDuplicates(killmails);
+        killmails.forEach(kill -> recentKillIds.add(kill.getKillId()));
+        savedMeter.mark(inserted);
+    }
+
+    /**
+     * Drops killmails that are stored already or occur twice in the batch. Ids that are not among the recently seen
+     * ones are checked with a single query.
+     */
+    private List<Killmail> removeAlreadyRetrieved(final List<Killmail> killmails) {
+        final List<Long> unknownIds = killmails.stream()
+                                               .map(Killmail::getKillId)
+                                               .filter(killId -> !recentKillIds.contains(killId))
+                                               .collect(toList());
+        if (!unknownIds.isEmpty()) {
+            killmailRepository.findExistingKillIds(unknownIds).forEach(recentKillIds::add);
+        }
+
+        final LongHashSet batchIds = new LongHashSet(killmails.size());
+        final List<Killmail> result = new ArrayList<>(killmails.size());
+        for (final Killmail killmail : killmails) {
+            if (recentKillIds.contains(killmail.getKillId()) || !batchIds.add(killmail.getKillId())) {
+                log.info("{} is discarded as it was already retrieved.", killmail.getKillId());
+                continue;
+            }
+            result.add(killmail);
+        }
+        return result;
+    }
+
+    private void recordLag(final KillmailPackage killmailPackage) {
+        if (null == killmailPackage.getKillmail() || null == killmailPackage.getKillmail().getKillmailTime()) {
+            return;
+        }
+        try {
+            final Instant killTime = Instant.parse(killmailPackage.getKillmail().getKillmailTime());
+            lastLag = Duration.between(killTime, Instant.now()).getSeconds();
+            lagHistogram.update(lastLag);
+        } catch (final DateTimeParseException e) {
+            log.debug("Could not parse kill time of {}.", killmailPackage.getKillmail().getKillmailId());
+        }
+    }
+
+    private static boolean sleep(final long millis) {
+        try {
+            Thread.sleep(millis);
+            return true;
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
     }
 
     private long getPoints(final long points, final int solarSystemId) {
@@ -108,16 +296,14 @@ public class KillmailPuller {
 
     private boolean filterKillmail(final Killmail killmail) {
         return hasBraveAttacker(killmail)
-               && isVictimNotBrave(killmail)
                && isInBraveSystem(killmail)
                && isNotInFleet(killmail)
-               && isNotAnEmptyPod(killmail)
-               && hasNotBeenRetrievedYet(killmail);
+               && isNotAnEmptyPod(killmail);
     }
 
     private boolean hasBraveAttacker(final Killmail killmail) {
         for (Integer attackerId : killmail.getAttackerIds()) {
-            if (playerIds.contains(attackerId)) {
+            if (membershipIndex.isCharacter(attackerId)) {
                 return true;
             }
         }
@@ -125,14 +311,6 @@ public class KillmailPuller {
         return false;
     }
 
-    private boolean hasNotBeenRetrievedYet(final Killmail killmail) {
-        final boolean killmailExists = killmailRepository.findByKillId(killmail.getKillId()).isPresent();
-        if (killmailExists) {
-            log.info("{} is discarded as it was already retrieved.", killmail.getKillId());
-        }
-        return !killmailExists;
-    }
-
     private boolean isNotInFleet(final Killmail killmail) {
         final int attackerCount = killmail.getAttackerIds().size();
         final boolean le20 = attackerCount <= 20;
@@ -152,7 +330,7 @@ public class KillmailPuller {
     }
 
     private boolean isInBraveSystem(final Killmail killmail) {
-        final boolean isInBraveSystem = systems.contains(killmail.getSolarSystemId());
+        final boolean isInBraveSystem = membershipIndex.isPvpSystem(killmail.getSolarSystemId());
         if (!isInBraveSystem) {
             log.info("{} is discarded as {} is not an activated system.", killmail.getKillId(), killmail.getSolarSystemId());
         }
@@ -160,7 +338,7 @@ public class KillmailPuller {
     }
 
     private boolean isVictimNotBrave(final Killmail killmail) {
-        final boolean isNotBrave = !killmail.getVictimGroupName().equals("Brave Collective");
+        final boolean isNotBrave = !"Brave Collective".equals(killmail.getVictimGroupName());
         if (!isNotBrave) {
             log.info("{} is discarded as it has a Brave victim.", killmail.getKillId());
         }
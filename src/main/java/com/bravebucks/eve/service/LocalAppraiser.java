@@ -0,0 +1,133 @@
+package com.bravebucks.eve.service;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import com.bravebucks.eve.domain.Appraisal;
+import com.bravebucks.eve.domain.ItemWithQuantity;
+import com.carrotsearch.hppc.IntLongHashMap;
+import com.carrotsearch.hppc.cursors.IntLongCursor;
+
+import org.springframework.stereotype.Service;
+
+/**
+ * Appraises items at the Jita buy prices of {@link MarketPriceService} without any request.
+ * <p>
+ * Every line of the raw text is read as one item in one of the formats the EVE client copies to the clipboard:
+ * inventory and contract rows with tab separated columns where the name comes first and the quantity second, or
+ * {@code "Name"}, {@code "Name 10"}, {@code "Name x10"} and {@code "10 x Name"}. Names are matched ignoring case
+ * against the types traded in Jita. Lines that do not match a type are left out, like evepraisal does.
+ */
+@Service
+public class LocalAppraiser {
+
+    private static final Pattern QUANTITY_FIRST = Pattern.compile("^([\\d,.' ]+?)\\s*x\\s+(.+)$");
+    private static final Pattern QUANTITY_LAST = Pattern.compile("^(.+?)\\s+x?\\s?([\\d,.']+)$");
+
+    private final MarketPriceService marketPriceService;
+
+    public LocalAppraiser(final MarketPriceService marketPriceService) {
+        this.marketPriceService = marketPriceService;
+    }
+
+    public boolean isReady() {
+        return marketPriceService.isLoaded();
+    }
+
+    /**
+     * @return an appraisal of the raw items without a link, with its total buy value and items sorted by name
+     */
+    public Appraisal appraise(final String raw) {
+        final MarketPrices prices = marketPriceService.getPrices();
+        final IntLongHashMap quantities = new IntLongHashMap();
+        for (final String line : raw.split("\\R")) {
+            final ItemWithQuantity item = parseLine(line, prices);
+            if (null != item) {
+                quantities.addTo(item.getTypeID(), item.getQuantity());
+            }
+        }
+
+        final List<ItemWithQuantity> items = new ArrayList<>(quantities.size());
+        double totalBuy = 0;
+        for (final IntLongCursor cursor : quantities) {
+            final int quantity = (int) Math.min(Integer.MAX_VALUE, cursor.value);
+            items.add(new ItemWithQuantity(prices.getName(cursor.key), cursor.key, quantity));
+            totalBuy += quantity * prices.getBuy(cursor.key);
+        }
+        items.sort(Comparator.comparing(ItemWithQuantity::getTypeName));
+
+        final Appraisal appraisal = new Appraisal(raw);
+        appraisal.setTotalBuy(totalBuy);
+        appraisal.setItems(items);
+        return appraisal;
+    }
+
+    /**
+     * @return the item of the line, or {@code null} if it does not name a traded type
+     */
+    static ItemWithQuantity parseLine(final String line, final MarketPrices prices) {
+        final String trimmed = line.trim();
+        if (trimmed.isEmpty() || trimmed.startsWith("[")) {
+            // blank, or a fitting header or empty slot
+            return null;
+        }
+        final int tab = trimmed.indexOf('\t');
+        if (tab >= 0) {
+            final String[] columns = trimmed.split("\t");
+            final int quantity = columns.length > 1 ? parseQuantity(columns[1]) : 1;
+            return item(columns[0], quantity > 0 ? quantity : 1, prices);
+        }
+
+        ItemWithQuantity item = item(trimmed, 1, prices);
+        if (null == item) {
+            item = item(QUANTITY_FIRST.matcher(trimmed), 2, 1, prices);
+        }
+        if (null == item) {
+            item = item(QUANTITY_LAST.matcher(trimmed), 1, 2, prices);
+        }
+        final int comma = trimmed.indexOf(", ");
+        if (null == item && comma > 0) {
+            // a module with its charge in a fitting, only the module counts
+            item = item(trimmed.substring(0, comma), 1, prices);
+        }
+        return item;
+    }
+
+    private static ItemWithQuantity item(final Matcher matcher, final int nameGroup, final int quantityGroup,
+                                         final MarketPrices prices) {
+        if (!matcher.matches()) {
+            return null;
+        }
+        final int quantity = parseQuantity(matcher.group(quantityGroup));
+        return quantity > 0 ? item(matcher.group(nameGroup), quantity, prices) : null;
+    }
+
+    private static ItemWithQuantity item(final String name, final int quantity, final MarketPrices prices) {
+        final int typeId = prices.getTypeId(name);
+        return typeId < 0 ? null : new ItemWithQuantity(prices.getName(typeId), typeId, quantity);
+    }
+
+    /**
+     * @return the quantity with any thousands separators removed, or -1 if it is not a positive int
+     */
+    static int parseQuantity(final String text) {
+        long quantity = 0;
+        int digits = 0;
+        for (int i = 0; i < text.length(); i++) {
+            final char c = text.charAt(i);
+            if (c >= '0' && c <= '9') {
+                quantity = quantity * 10 + (c - '0');
+                if (quantity > Integer.MAX_VALUE) {
+                    return -1;
+                }
+                digits++;
+            } else if (c != ',' && c != '.' && c != '\'' && c != ' ') {
+                return -1;
+            }
+        }
+        return digits > 0 && quantity > 0 ? (int) quantity : -1;
+    }
+}
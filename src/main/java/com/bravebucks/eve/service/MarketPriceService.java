@@ -0,0 +1,78 @@
+package com.bravebucks.eve.service;
+
+import javax.annotation.PostConstruct;
+
+import com.bravebucks.eve.config.ApplicationProperties;
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.client.RestClientException;
+
+/**
+ * Holds the current Jita {@link MarketPrices}.
+ * <p>
+ * The snapshot is loaded in the background after startup and replaced as a whole every half hour. Every node keeps
+ * its own copy. A failed refresh keeps the previous prices. The download can be turned off with
+ * {@code application.market-prices.enabled}, as in tests.
+ */
+@Service
+public class MarketPriceService {
+
+    private static final Logger log = LoggerFactory.getLogger(MarketPriceService.class);
+    static final String JOB = "market-prices";
+
+    private final MarketPriceSource marketPriceSource;
+    private final JobRunner jobRunner;
+    private final boolean enabled;
+    private volatile MarketPrices prices = MarketPrices.EMPTY;
+
+    public MarketPriceService(final MarketPriceSource marketPriceSource, final JobRunner jobRunner,
+                              final ApplicationProperties applicationProperties,
+                              final MetricRegistry metricRegistry) {
+        this.marketPriceSource = marketPriceSource;
+        this.jobRunner = jobRunner;
+        enabled = applicationProperties.getMarketPrices().isEnabled();
+        metricRegistry.register(MetricRegistry.name(MarketPriceService.class, "types"),
+                                (Gauge<Integer>) () -> prices.size());
+    }
+
+    public MarketPrices getPrices() {
+        return prices;
+    }
+
+    /**
+     * @return whether a snapshot has been loaded since startup
+     */
+    public boolean isLoaded() {
+        return prices != MarketPrices.EMPTY;
+    }
+
+    @PostConstruct
+    public void init() {
+        if (!enabled) {
+            log.info("Market price download is disabled, appraisals go through evepraisal.");
+            return;
+        }
+        jobRunner.trigger(this::update);
+    }
+
+    @Scheduled(cron = "0 */30 * * * *")
+    public void update() {
+        if (enabled) {
+            jobRunner.run(JOB, this::refresh);
+        }
+    }
+
+    private void refresh() {
+        try {
+            prices = marketPriceSource.load(prices);
+            log.info("Market prices of {} types loaded.", prices.size());
+        } catch (RestClientException e) {
+            log.warn("Market price download failed. Keeping previous prices.", e);
+        }
+    }
+}
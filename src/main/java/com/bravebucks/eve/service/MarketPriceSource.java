@@ -0,0 +1,13 @@
+package com.bravebucks.eve.service;
+
+/**
+ * Loads a complete {@link MarketPrices} snapshot.
+ */
+public interface MarketPriceSource {
+
+    /**
+     * @param previous the current snapshot, its names may be reused for types still traded
+     * @throws org.springframework.web.client.RestClientException if the prices could not be loaded
+     */
+    MarketPrices load(MarketPrices previous);
+}
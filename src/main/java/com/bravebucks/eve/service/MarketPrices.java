@@ -0,0 +1,173 @@
+package com.bravebucks.eve.service;
+
+import java.util.Arrays;
+import java.util.Locale;
+
+import com.carrotsearch.hppc.DoubleArrayList;
+import com.carrotsearch.hppc.IntDoubleHashMap;
+import com.carrotsearch.hppc.IntHashSet;
+import com.carrotsearch.hppc.IntObjectHashMap;
+import com.carrotsearch.hppc.ObjectIntHashMap;
+import com.carrotsearch.hppc.cursors.IntCursor;
+import com.carrotsearch.hppc.cursors.IntObjectCursor;
+
+/**
+ * Immutable snapshot of the Jita buy and sell price and the name of every type traded there.
+ * <p>
+ * Like evepraisal, the buy price is the volume weighted average of the highest priced buy orders that make up the top
+ * 5% of the buy volume, so a single outlier order does not set the price.
+ */
+public final class MarketPrices {
+
+    static final MarketPrices EMPTY = builder().build();
+    static final double BUY_PERCENTILE = 0.05;
+
+    private final IntDoubleHashMap buy;
+    private final IntDoubleHashMap sell;
+    private final IntObjectHashMap<String> names;
+    // lower case name -> type id
+    private final ObjectIntHashMap<String> typeIds;
+
+    private MarketPrices(final IntDoubleHashMap buy, final IntDoubleHashMap sell,
+                         final IntObjectHashMap<String> names) {
+        this.buy = buy;
+        this.sell = sell;
+        this.names = names;
+        typeIds = new ObjectIntHashMap<>(names.size());
+        for (final IntObjectCursor<String> cursor : names) {
+            typeIds.put(normalize(cursor.value), cursor.key);
+        }
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * @return the type id of the name, ignoring case, or -1 if no type of that name is traded
+     */
+    public int getTypeId(final String name) {
+        return typeIds.getOrDefault(normalize(name), -1);
+    }
+
+    /**
+     * @return the name of the type, or {@code null} if it is not traded
+     */
+    public String getName(final int typeId) {
+        return names.get(typeId);
+    }
+
+    /**
+     * @return the volume weighted buy price of the top 5% of the buy volume of the type, 0 without buy orders
+     */
+    public double getBuy(final int typeId) {
+        return buy.get(typeId);
+    }
+
+    /**
+     * @return the lowest sell price of the type, 0 without sell orders
+     */
+    public double getSell(final int typeId) {
+        return sell.get(typeId);
+    }
+
+    public int size() {
+        return names.size();
+    }
+
+    private static String normalize(final String name) {
+        return name.trim().toLowerCase(Locale.ROOT);
+    }
+
+    public static final class Builder {
+
+        // buy orders by type as alternating price and volume
+        private final IntObjectHashMap<DoubleArrayList> buyOrders = new IntObjectHashMap<>();
+        private final IntDoubleHashMap sell = new IntDoubleHashMap();
+        private final IntObjectHashMap<String> names = new IntObjectHashMap<>();
+        private final IntHashSet typeIds = new IntHashSet();
+
+        private Builder() {
+        }
+
+        public Builder order(final int typeId, final boolean buyOrder, final double price, final long volume) {
+            typeIds.add(typeId);
+            if (buyOrder) {
+                DoubleArrayList orders = buyOrders.get(typeId);
+                if (null == orders) {
+                    orders = new DoubleArrayList();
+                    buyOrders.put(typeId, orders);
+                }
+                orders.add(price, volume);
+            } else if (!sell.containsKey(typeId) || price < sell.get(typeId)) {
+                sell.put(typeId, price);
+            }
+            return this;
+        }
+
+        public Builder name(final int typeId, final String name) {
+            names.put(typeId, name);
+            return this;
+        }
+
+        /**
+         * @return the types that have orders so far
+         */
+        public IntHashSet typeIds() {
+            return typeIds;
+        }
+
+        /**
+         * Types without a name cannot be looked up and are left out.
+         */
+        public MarketPrices build() {
+            final IntObjectHashMap<String> traded = new IntObjectHashMap<>(typeIds.size());
+            for (final IntCursor typeId : typeIds) {
+                final String name = names.get(typeId.value);
+                if (null != name) {
+                    traded.put(typeId.value, name);
+                }
+            }
+            final IntDoubleHashMap buy = new IntDoubleHashMap(buyOrders.size());
+            for (final IntObjectCursor<DoubleArrayList> orders : buyOrders) {
+                if (traded.containsKey(orders.key)) {
+                    buy.put(orders.key, topPercentile(orders.value.toArray()));
+                }
+            }
+            return new MarketPrices(buy, sell, traded);
+        }
+
+        /**
+         * @param orders alternating price and volume
+         * @return the volume weighted price of the highest priced orders up to {@link #BUY_PERCENTILE} of the volume
+         */
+        static double topPercentile(final double[] orders) {
+            final int count = orders.length / 2;
+            final Integer[] byPrice = new Integer[count];
+            double total = 0;
+            double highest = 0;
+            for (int i = 0; i < count; i++) {
+                byPrice[i] = i;
+                total += orders[2 * i + 1];
+                highest = Math.max(highest, orders[2 * i]);
+            }
+            if (total <= 0) {
+                return highest;
+            }
+            Arrays.sort(byPrice, (a, b) -> Double.compare(orders[2 * b], orders[2 * a]));
+
+            final double target = Math.max(1, Math.ceil(total * BUY_PERCENTILE));
+            double volume = 0;
+            double value = 0;
+            for (final int i : byPrice) {
+                final double taken = Math.min(orders[2 * i + 1], target - volume);
+                volume += taken;
+                value += taken * orders[2 * i];
+                if (volume >= target) {
+                    break;
+                }
+            }
+            return value / volume;
+        }
+    }
+}
@@ -0,0 +1,160 @@
+package com.bravebucks.eve.service;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+
+import javax.annotation.PostConstruct;
+
+import com.bravebucks.eve.domain.SolarSystem;
+import com.bravebucks.eve.domain.User;
+import com.bravebucks.eve.repository.SolarSystemRepository;
+import com.bravebucks.eve.repository.UserRepository;
+import com.carrotsearch.hppc.IntHashSet;
+import com.mongodb.DBObject;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.mongodb.core.mapping.event.AbstractMongoEventListener;
+import org.springframework.data.mongodb.core.mapping.event.AfterDeleteEvent;
+import org.springframework.data.mongodb.core.mapping.event.AfterSaveEvent;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+/**
+ * In-memory index of the character IDs of all registered users and of the solar systems tracked for PvP.
+ * <p>
+ * Lookups go against immutable primitive int sets and never touch the database. The sets are replaced copy-on-write
+ * whenever a {@link User} or {@link SolarSystem} is saved or deleted through Spring Data, and fully rebuilt once an
+ * hour to pick up changes made around the mapping layer.
+ */
+@Service
+public class MembershipIndex extends AbstractMongoEventListener<Object> {
+
+    private static final Logger log = LoggerFactory.getLogger(MembershipIndex.class);
+    private static final String JOB = "membership-index";
+
+    private final UserRepository userRepository;
+    private final SolarSystemRepository solarSystemRepository;
+    private final JobRunner jobRunner;
+
+    private volatile IntHashSet characterIds = new IntHashSet();
+    private volatile IntHashSet pvpSystemIds = new IntHashSet();
+    // user id -> character id, to drop the previous character of a saved user
+    private final Map<String, Integer> charactersByUserId = new HashMap<>();
+    // solar system document id -> system id, to resolve deletions by document id
+    private final Map<String, Integer> pvpSystemsByDocumentId = new HashMap<>();
+
+    public MembershipIndex(final UserRepository userRepository,
+                           final SolarSystemRepository solarSystemRepository,
+                           final JobRunner jobRunner) {
+        this.userRepository = userRepository;
+        this.solarSystemRepository = solarSystemRepository;
+        this.jobRunner = jobRunner;
+    }
+
+    public boolean isCharacter(final int characterId) {
+        return characterIds.contains(characterId);
+    }
+
+    public boolean isPvpSystem(final int systemId) {
+        return pvpSystemIds.contains(systemId);
+    }
+
+    @PostConstruct
+    @Scheduled(cron = "0 15 * * * *")
+    public void rebuild() {
+        jobRunner.run(JOB, this::rebuildAll);
+    }
+
+    private void rebuildAll() {
+        rebuildCharacters();
+        rebuildPvpSystems();
+        log.info("Membership index contains {} characters and {} PvP systems.", characterIds.size(),
+                 pvpSystemIds.size());
+    }
+
+    private synchronized void rebuildCharacters() {
+        final IntHashSet ids = new IntHashSet();
+        charactersByUserId.clear();
+        for (final User user : userRepository.findAllByCharacterIdNotNull()) {
+            ids.add(user.getCharacterId().intValue());
+            charactersByUserId.put(user.getId(), user.getCharacterId().intValue());
+        }
+        characterIds = ids;
+    }
+
+    private synchronized void rebuildPvpSystems() {
+        final IntHashSet ids = new IntHashSet();
+        pvpSystemsByDocumentId.clear();
+        for (final SolarSystem system : solarSystemRepository.findAllByTrackPvp(true)) {
+            ids.add(system.getSystemId().intValue());
+            pvpSystemsByDocumentId.put(system.getId(), system.getSystemId().intValue());
+        }
+        pvpSystemIds = ids;
+    }
+
+    @Override
+    public void onAfterSave(final AfterSaveEvent<Object> event) {
+        final Object source = event.getSource();
+        if (source instanceof User) {
+            updateCharacter((User) source);
+        } else if (source instanceof SolarSystem) {
+            updatePvpSystem((SolarSystem) source);
+        }
+    }
+
+    @Override
+    public void onAfterDelete(final AfterDeleteEvent<Object> event) {
+        if (User.class.equals(event.getType())) {
+            // deleted users are rare and the event does not carry the character id
+            rebuildCharacters();
+        } else if (SolarSystem.class.equals(event.getType())) {
+            removePvpSystem(event.getSource());
+        }
+    }
+
+    private synchronized void updateCharacter(final User user) {
+        final Integer current = null == user.getCharacterId() ? null : user.getCharacterId().intValue();
+        final Integer previous = null == current ? charactersByUserId.remove(user.getId())
+                                                 : charactersByUserId.put(user.getId(), current);
+        if (Objects.equals(previous, current)) {
+            return;
+        }
+        final IntHashSet ids = characterIds.clone();
+        // another user may still have the previous character
+        if (null != previous && !charactersByUserId.containsValue(previous)) {
+            ids.remove(previous);
+        }
+        if (null != current) {
+            ids.add(current);
+        }
+        characterIds = ids;
+    }
+
+    private synchronized void updatePvpSystem(final SolarSystem system) {
+        final IntHashSet ids = pvpSystemIds.clone();
+        final Integer previous = pvpSystemsByDocumentId.remove(system.getId());
+        if (null != previous) {
+            ids.remove(previous);
+        }
+        if (Boolean.TRUE.equals(system.getTrackPvp()) && null != system.getSystemId()) {
+            ids.add(system.getSystemId().intValue());
+            pvpSystemsByDocumentId.put(system.getId(), system.getSystemId().intValue());
+        }
+        pvpSystemIds = ids;
+    }
+
+    private synchronized void removePvpSystem(final DBObject query) {
+        // string ids that look like object ids are mapped to ObjectId by the template
+        final String documentId = String.valueOf(query.get("_id"));
+        if (!pvpSystemsByDocumentId.containsKey(documentId)) {
+            // deleted by a query we cannot map back to a single system
+            rebuildPvpSystems();
+            return;
+        }
+        final IntHashSet ids = pvpSystemIds.clone();
+        ids.remove(pvpSystemsByDocumentId.remove(documentId));
+        pvpSystemIds = ids;
+    }
+}
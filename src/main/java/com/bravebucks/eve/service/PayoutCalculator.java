@@ -8,14 +8,16 @@ import java.time.ZoneOffset;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
-import java.util.Objects;
+import java.util.Map;
 import java.util.Set;
 import java.util.stream.Collectors;
 import static java.util.stream.Collectors.toList;
 
 import javax.annotation.PostConstruct;
 
+import com.bravebucks.eve.config.ApplicationProperties;
 import com.bravebucks.eve.domain.Donation;
 import com.bravebucks.eve.domain.EveCharacter;
 import com.bravebucks.eve.domain.Killmail;
@@ -27,14 +29,19 @@ import com.bravebucks.eve.repository.KillmailRepository;
 import com.bravebucks.eve.repository.RattingEntryRepository;
 import com.bravebucks.eve.repository.TransactionRepository;
 import com.bravebucks.eve.repository.UserRepository;
+import com.carrotsearch.hppc.IntHashSet;
+import com.carrotsearch.hppc.IntLongHashMap;
+import com.carrotsearch.hppc.IntObjectHashMap;
+import com.carrotsearch.hppc.ObjectLongHashMap;
 import com.codahale.metrics.annotation.Timed;
 import static com.bravebucks.eve.domain.Constants.ALLIANCE_ID;
 import static com.bravebucks.eve.domain.enumeration.TransactionType.KILL;
 import static com.bravebucks.eve.domain.enumeration.TransactionType.RATTING;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.core.env.Environment;
-import org.springframework.scheduling.annotation.Async;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
@@ -43,6 +50,8 @@ import io.github.jhipster.config.JHipsterConstants;
 @Service
 public class PayoutCalculator {
 
+    private static final Logger log = LoggerFactory.getLogger(PayoutCalculator.class);
+    private static final String JOB = "payout-calculator";
     private static final long FINAL_BLOW_BONUS = 2;
     private static final long KILL_BUDGET = 9_000_000_000L;
     private static final long RATTING_BUDGET = 2_000_000_000L;
@@ -51,6 +60,10 @@ public class PayoutCalculator {
     private final TransactionRepository transactionRepository;
     private final RattingEntryRepository rattingEntryRepository;
     private final CharacterRepository characterRepository;
+    private final AccountBalanceService accountBalanceService;
+    private final HighscoreService highscoreService;
+    private final JobRunner jobRunner;
+    private final int batchSize;
     private final Environment env;
 
     @Autowired
@@ -59,12 +72,20 @@ public class PayoutCalculator {
                             final TransactionRepository transactionRepository,
                             final RattingEntryRepository rattingEntryRepository,
                             final CharacterRepository characterRepository,
+                            final AccountBalanceService accountBalanceService,
+                            final HighscoreService highscoreService,
+                            final JobRunner jobRunner,
+                            final ApplicationProperties applicationProperties,
                             final Environment env) {
         this.killmailRepository = killmailRepository;
         this.userRepository = userRepository;
         this.rattingEntryRepository = rattingEntryRepository;
         this.transactionRepository = transactionRepository;
         this.characterRepository = characterRepository;
+        this.accountBalanceService = accountBalanceService;
+        this.highscoreService = highscoreService;
+        this.jobRunner = jobRunner;
+        this.batchSize = applicationProperties.getPayouts().getBatchSize();
         this.env = env;
     }
 
@@ -76,120 +97,187 @@ public class PayoutCalculator {
         }
     }
 
-    @Async
     @Timed
     @Scheduled(cron = "0 0 11 * * *")
     public void calculatePayouts() {
+        jobRunner.runOnOneNode(JOB, this::calculatePendingPayouts);
+    }
+
+    /**
+     * Redoes a run that crashed before it completed, then pays out everything pending in a new run.
+     */
+    private void calculatePendingPayouts() {
+        String run = killmailRepository.findUnfinishedPayoutRun();
+        if (null == run) {
+            run = rattingEntryRepository.findUnfinishedPayoutRun();
+        }
+        if (null != run) {
+            log.warn("Redoing payout run {}, it did not complete.", run);
+            pay(run, killmailRepository.findClaimed(run), rattingEntryRepository.findClaimed(run), true);
+        }
+
+        run = Instant.now().toString();
+        pay(run, killmailRepository.claimPending(run), rattingEntryRepository.claimPending(run), false);
+    }
+
+    /**
+     * Pays out the killmails and ratting entries claimed by the run. The transactions get ids derived from the run,
+     * so redoing a run inserts only the transactions that are missing.
+     */
+    private void pay(final String run, final List<Killmail> pendingKillmails,
+                     final List<RattingEntry> pendingRattingEntries, final boolean redo) {
         final List<User> users = userRepository.findAllByCharacterIdNotNullAndAllianceId(ALLIANCE_ID);
         final List<Integer> characterIds = users.stream().map(u -> u.getCharacterId().intValue()).collect(toList());
 
-        final List<Killmail> pendingKillmails = killmailRepository.findPending();
-        final Collection<Transaction> transactions = getKillmailTransactions(users, characterIds, pendingKillmails);
-        pendingKillmails.forEach(km -> km.setPayoutCalculated(true));
+        final List<Transaction> transactions = new ArrayList<>(getKillmailTransactions(users, characterIds,
+                                                                                       pendingKillmails));
 
-        final Set<String> rattingUserIds = characterRepository.findByWalletReadRefreshTokenNotNull().stream().map(EveCharacter::getOwningUser).collect(Collectors.toSet());
+        final List<EveCharacter> characters = characterRepository.findAll();
+        final Set<String> rattingUserIds = characters.stream()
+                                                     .filter(c -> null != c.getWalletReadRefreshToken())
+                                                     .map(EveCharacter::getOwningUser)
+                                                     .collect(Collectors.toSet());
         final List<User> rattingUsers = users.stream().filter(user -> rattingUserIds.contains(user.getId())).collect(toList());
-        final List<RattingEntry> pendingRattingEntries = rattingEntryRepository.findByProcessed(false);
-        transactions.addAll(getRattingTransactions(rattingUsers, pendingRattingEntries));
-        pendingRattingEntries.forEach(e -> e.setProcessed(true));
+        transactions.addAll(getRattingTransactions(rattingUsers, characters, pendingRattingEntries));
+        transactions.forEach(t -> {
+            t.setId(run + "-" + t.getType() + "-" + t.getUser());
+            t.setPayoutRun(run);
+        });
+
+        final Set<String> paidUsers = transactions.stream().map(Transaction::getUser).collect(Collectors.toSet());
+        checkLease(run);
+        final int inserted = accountBalanceService.write(paidUsers, () -> {
+            final int count = transactionRepository.insertIgnoringDuplicates(transactions, batchSize);
+            if (!redo) {
+                checkLease(run);
+                accountBalanceService.addTransactions(transactions);
+            }
+            return count;
+        });
+        if (redo) {
+            // the crashed run may or may not have applied its transactions to the balances
+            checkLease(run);
+            if (!accountBalanceService.reconcile(paidUsers)) {
+                // the run stays unfinished, so the next calculation redoes it
+                throw new IllegalStateException("Could not reconcile the balances of payout run " + run
+                                                + ", the reconciliation is running elsewhere or kept being skipped.");
+            }
+        }
+        checkLease(run);
+        final int killmails = killmailRepository.completePayoutRun(run);
+        final int rattingEntries = rattingEntryRepository.completePayoutRun(run);
+        log.info("Payout run {} paid {} killmails and {} ratting entries with {} transactions.", run, killmails,
+                 rattingEntries, inserted);
+        highscoreService.refresh();
+    }
 
-        rattingEntryRepository.save(pendingRattingEntries);
-        killmailRepository.save(pendingKillmails);
-        transactionRepository.save(transactions);
+    /**
+     * Stops the run before its next write once another node may have taken over the job. The run stays unfinished
+     * and is redone by the node that holds the lease.
+     */
+    private void checkLease(final String run) {
+        if (!jobRunner.holdsLease(JOB)) {
+            throw new IllegalStateException("Lost the lease on " + JOB + " during payout run " + run + ".");
+        }
     }
 
     private List<Transaction> getRattingTransactions(final List<User> rattingUsers,
+                                                     final List<EveCharacter> characters,
                                                      final List<RattingEntry> pendingRattingEntries) {
-        final List<Transaction> transactions = new ArrayList<>();
-        final long totalPoints = getTotalRattingPoints(pendingRattingEntries, rattingUsers);
+        final ObjectLongHashMap<String> pointsByUser = aggregateRattingPoints(characters, pendingRattingEntries);
+        final long totalPoints = rattingUsers.stream().mapToLong(user -> pointsByUser.get(user.getId())).sum();
         final long todayBudget = RATTING_BUDGET / LocalDate.now().getMonth().maxLength();
 
+        final List<Transaction> transactions = new ArrayList<>();
         for (User user : rattingUsers) {
-            final long pointsForUser = getRattingPointsForUser(pendingRattingEntries, user);
+            final long pointsForUser = pointsByUser.get(user.getId());
             if (pointsForUser == 0 || totalPoints == 0) {
                 continue;
             }
 
             final double factor = (double) pointsForUser / totalPoints;
             final double userPayable = todayBudget * factor;
-            final String userName = getUserName(rattingUsers, user.getCharacterId().intValue());
-            transactions.add(new Transaction(userName, userPayable, RATTING));
+            transactions.add(new Transaction(user.getLogin(), userPayable, RATTING));
         }
 
         return transactions;
     }
 
+    /**
+     * Sums up the ADM weighted kill counts of the pending entries per owning user in a single pass.
+     */
+    ObjectLongHashMap<String> aggregateRattingPoints(final Iterable<EveCharacter> characters,
+                                                     final Iterable<RattingEntry> pendingRattingEntries) {
+        final IntObjectHashMap<String> owners = new IntObjectHashMap<>();
+        characters.forEach(c -> owners.put(c.getId(), c.getOwningUser()));
+
+        final ObjectLongHashMap<String> pointsByUser = new ObjectLongHashMap<>();
+        for (final RattingEntry entry : pendingRattingEntries) {
+            final String userId = null == entry.getCharacterId() ? null : owners.get(entry.getCharacterId());
+            if (null == userId) {
+                continue;
+            }
+            final double admWeight = 4 / (1 + entry.getAdm());
+            // truncated per entry, like the former per user sum
+            pointsByUser.put(userId, (long) (pointsByUser.get(userId) + entry.getKillCount() * admWeight));
+        }
+        return pointsByUser;
+    }
+
     private Collection<Transaction> getKillmailTransactions(final List<User> users, final List<Integer> characterIds,
                                                             final List<Killmail> pendingKillmails) {
-        final long totalPoints = getTotalPoints(pendingKillmails, characterIds);
+        final IntLongHashMap pointsByCharacter = aggregateKillmailPoints(pendingKillmails,
+                                                                         IntHashSet.from(toIntArray(characterIds)));
+        final long totalPoints = characterIds.stream().mapToLong(pointsByCharacter::get).sum();
         final long todayBudget = KILL_BUDGET / LocalDate.now().getMonth().maxLength();
+        final Map<Integer, String> userNames = getUserNames(users);
 
         final Collection<Transaction> transactions = new ArrayList<>();
 
         for (final Integer characterId : characterIds) {
-            final long pointsForUser = getPointsForUser(pendingKillmails, characterId);
+            final long pointsForUser = pointsByCharacter.get(characterId);
             if (pointsForUser == 0 || totalPoints == 0) {
                 continue;
             }
             final double factor = (double) pointsForUser / totalPoints;
             final double userPayable = todayBudget * factor;
-            final String user = getUserName(users, characterId);
+            final String user = userNames.getOrDefault(characterId, String.valueOf(characterId));
             transactions.add(new Transaction(user, userPayable, KILL));
         }
         return transactions;
     }
 
-    private long getTotalRattingPoints(final List<RattingEntry> pendingRattingEntries, final List<User> rattingUsers) {
-        return rattingUsers.stream().mapToLong(user -> getRattingPointsForUser(pendingRattingEntries, user)).sum();
-    }
-
-    private long getTotalPoints(final Iterable<Killmail> killmails, final Collection<Integer> characterIds) {
-        return characterIds.stream().mapToLong(id -> getPointsForUser(killmails, id)).sum();
-    }
-
-    private long getRattingPointsForUser(final List<RattingEntry> pendingRattingEntries,
-                                         final User user) {
-        List<Integer> characterIds = characterRepository.findByOwningUser(user.getId()).stream().map(EveCharacter::getId).collect(toList());
-
-        long sum = 0;
-        for (RattingEntry pendingRattingEntry : pendingRattingEntries) {
-            if (characterIds.contains(pendingRattingEntry.getCharacterId())) {
-                final double admWeight = 4 / (1 + pendingRattingEntry.getAdm());
-                sum += pendingRattingEntry.getKillCount() * admWeight;
-            }
-        }
-        return sum;
-    }
-
-    private long getPointsForUser(final Iterable<Killmail> killmails, final Integer characterId) {
-        long sum = 0;
+    /**
+     * Sums up the points of the paid characters in a single pass over the killmails. The characters are those the
+     * run loaded, not the eventually consistent MembershipIndex, as the killmails are completed after the run.
+     */
+    IntLongHashMap aggregateKillmailPoints(final Iterable<Killmail> killmails, final IntHashSet characterIds) {
+        final IntLongHashMap pointsByCharacter = new IntLongHashMap();
         for (final Killmail killmail : killmails) {
             final long points = killmail.getPoints();
             for (final Integer attackerId : killmail.getAttackerIds()) {
-                if (Objects.equals(characterId, attackerId)) {
-                    sum += points;
-                }
-
-                if (Objects.equals(characterId, killmail.getFinalBlowAttackerId())) {
-                    sum += FINAL_BLOW_BONUS;
+                if (characterIds.contains(attackerId)) {
+                    pointsByCharacter.addTo(attackerId, points);
                 }
             }
 
+            final Integer finalBlowAttackerId = killmail.getFinalBlowAttackerId();
+            if (null != finalBlowAttackerId && characterIds.contains(finalBlowAttackerId)) {
+                // the bonus has always been granted once per attacker on the mail
+                pointsByCharacter.addTo(finalBlowAttackerId, FINAL_BLOW_BONUS * killmail.getAttackerIds().size());
+            }
         }
+        return pointsByCharacter;
+    }
 
-        return sum;
+    private static int[] toIntArray(final Collection<Integer> ids) {
+        return ids.stream().mapToInt(Integer::intValue).toArray();
     }
 
-    private String getUserName(final Iterable<User> users, final Integer characterId) {
-        // fallback with userId
-        String user = String.valueOf(characterId);
-        for (final User u : users) {
-            if (Objects.equals(u.getCharacterId().intValue(), characterId)) {
-                user = u.getLogin();
-                break;
-            }
-        }
-        return user;
+    private static Map<Integer, String> getUserNames(final Collection<User> users) {
+        final Map<Integer, String> userNames = new HashMap<>();
+        users.forEach(u -> userNames.putIfAbsent(u.getCharacterId().intValue(), u.getLogin()));
+        return userNames;
     }
 
     double getRemainingWorth(final Donation donation, final LocalDate date) {
@@ -0,0 +1,66 @@
+package com.bravebucks.eve.service;
+
+import java.util.List;
+
+import javax.annotation.PostConstruct;
+
+import com.bravebucks.eve.config.ApplicationProperties;
+import com.bravebucks.eve.repository.KillmailRepository;
+import com.carrotsearch.hppc.LongHashSet;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+/**
+ * Bounded set of the most recently stored kill ids.
+ * <p>
+ * Ids are kept in a primitive ring buffer; once it is full, adding an id evicts the oldest one. Warmed at startup from
+ * the newest stored killmails so that RedisQ replays after a restart are recognised without a query.
+ */
+@Component
+public class RecentKillIds {
+
+    private static final Logger log = LoggerFactory.getLogger(RecentKillIds.class);
+
+    private final KillmailRepository killmailRepository;
+    private final long[] ring;
+    private final LongHashSet ids;
+    private int next;
+    private int size;
+
+    public RecentKillIds(final KillmailRepository killmailRepository,
+                         final ApplicationProperties applicationProperties) {
+        this.killmailRepository = killmailRepository;
+        final int capacity = applicationProperties.getIngestion().getRecentKillIds();
+        ring = new long[capacity];
+        ids = new LongHashSet(capacity);
+    }
+
+    @PostConstruct
+    public void warm() {
+        final List<Long> newest = killmailRepository.findNewestKillIds(ring.length);
+        // oldest first, so the newest ones are evicted last
+        for (int i = newest.size() - 1; i >= 0; i--) {
+            add(newest.get(i));
+        }
+        log.info("Warmed recent kill ids with {} entries.", newest.size());
+    }
+
+    public synchronized boolean contains(final long killId) {
+        return ids.contains(killId);
+    }
+
+    public synchronized void add(final long killId) {
+        if (ring.length == 0 || !ids.add(killId)) {
+            return;
+        }
+        if (size == ring.length) {
+            ids.remove(ring[next]);
+        } else {
+            size++;
+        }
+        ring[next] = killId;
+        next = (next + 1) % ring.length;
+    }
+}
@@ -0,0 +1,209 @@
+package com.bravebucks.eve.service;
+
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Date;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import javax.annotation.PreDestroy;
+
+import com.bravebucks.eve.domain.JobLock;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+
+/**
+ * Makes sure a scheduled job runs on only one node of the cluster.
+ * <p>
+ * Every job has a lease in the {@code job_lock} collection. A node runs the job only after taking over a lease that
+ * is free or expired, and renews it with a heartbeat while the job is running. When the holder dies its lease
+ * expires after {@link #LEASE} and the next node whose schedule fires takes over. A released lease stays held for
+ * {@link #MIN_HOLD} after it was acquired, so nodes with slightly skewed clocks do not run the same trigger twice.
+ * <p>
+ * A heartbeat that fails cannot stop the task, another node may take over the job while it is still running here.
+ * Tasks that write must check {@link #isHeld(String)} before they do.
+ */
+@Service
+public class SchedulerLock {
+
+    private static final Logger log = LoggerFactory.getLogger(SchedulerLock.class);
+    private static final Duration LEASE = Duration.ofMinutes(2);
+    private static final Duration MIN_HOLD = Duration.ofMinutes(1);
+
+    private final MongoTemplate mongoTemplate;
+    private final String owner;
+    private final ScheduledExecutorService heartbeats;
+    // jobs running locked on this node, and whether their lease has been renewed without a gap
+    private final Map<String, AtomicBoolean> running = new ConcurrentHashMap<>();
+
+    public SchedulerLock(final MongoTemplate mongoTemplate) {
+        this.mongoTemplate = mongoTemplate;
+        // pid@host, plus a random part in case two containers share both
+        owner = ManagementFactory.getRuntimeMXBean().getName() + "/" + UUID.randomUUID().toString().substring(0, 8);
+        heartbeats = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            final Thread thread = new Thread(runnable, "scheduler-lock-heartbeat");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    public void stop() {
+        heartbeats.shutdownNow();
+    }
+
+    /**
+     * Runs the task if this node gets the lease on the job, and skips it otherwise.
+     *
+     * @return whether the task ran on this node
+     */
+    public boolean runLocked(final String job, final Runnable task) {
+        final Instant acquired = Instant.now();
+        if (!tryAcquire(job)) {
+            log.info("Skipping {}, it is running on another node.", job);
+            return false;
+        }
+        final AtomicBoolean held = new AtomicBoolean(true);
+        running.put(job, held);
+        final long period = LEASE.toMillis() / 3;
+        final ScheduledFuture<?> heartbeat = heartbeats.scheduleAtFixedRate(() -> renew(job), period, period,
+                                                                           TimeUnit.MILLISECONDS);
+        try {
+            task.run();
+            return true;
+        } finally {
+            heartbeat.cancel(false);
+            running.remove(job);
+            if (held.get()) {
+                release(job, acquired.plus(MIN_HOLD));
+            } else {
+                log.error("{} lost its lease before it finished.", job);
+            }
+        }
+    }
+
+    /**
+     * @return whether the job is running locked on this node and its lease has been held for the whole run so far
+     */
+    public boolean isHeld(final String job) {
+        final AtomicBoolean held = running.get(job);
+        return null != held && held.get();
+    }
+
+    /**
+     * @return a lease on the job for a long running task that checks {@link Lease#isHeld()} as it goes
+     */
+    public Lease lease(final String job) {
+        return new Lease(job);
+    }
+
+    /**
+     * Acquires the lease on the job if it is free, expired or already held by this node, and extends it by
+     * {@link #LEASE}.
+     */
+    boolean tryAcquire(final String job) {
+        final Instant now = Instant.now();
+        final Query query = new Query(new Criteria().andOperator(
+            where("job").is(job),
+            new Criteria().orOperator(where("lockedUntil").lte(Date.from(now)), where("owner").is(owner))));
+        final Update update = new Update().set("owner", owner)
+                                          .set("lockedUntil", Date.from(now.plus(LEASE)))
+                                          .set("heartbeat", Date.from(now));
+        try {
+            return null != mongoTemplate.findAndModify(query, update,
+                                                       FindAndModifyOptions.options().upsert(true).returnNew(true),
+                                                       JobLock.class);
+        } catch (final DuplicateKeyException e) {
+            // the upsert collided with a lease held by another node
+            return false;
+        }
+    }
+
+    /**
+     * Renews the lease of a running job. Once a renewal failed the lease is never taken back during the run, another
+     * node may have run the job in the gap.
+     */
+    void renew(final String job) {
+        final AtomicBoolean held = running.get(job);
+        if (null == held || !held.get()) {
+            return;
+        }
+        boolean renewed;
+        try {
+            renewed = tryAcquire(job);
+        } catch (final DataAccessException e) {
+            // an exception would also cancel the heartbeat silently
+            log.warn("Could not renew the lease on {}: {}", job, e.getMessage());
+            renewed = false;
+        }
+        if (!renewed) {
+            held.set(false);
+            log.warn("Lost the lease on {} while running it.", job);
+        }
+    }
+
+    private void release(final String job, final Instant holdUntil) {
+        final Instant now = Instant.now();
+        final Instant lockedUntil = holdUntil.isAfter(now) ? holdUntil : now;
+        mongoTemplate.updateFirst(new Query(where("job").is(job).and("owner").is(owner)),
+                                  Update.update("lockedUntil", Date.from(lockedUntil)), JobLock.class);
+    }
+
+    /**
+     * A lease that is renewed lazily whenever it is checked and a third of its duration has passed. Not thread-safe,
+     * it belongs to the one thread doing the job.
+     */
+    public final class Lease {
+
+        private final String job;
+        private boolean held;
+        private long checkDue;
+
+        private Lease(final String job) {
+            this.job = job;
+            checkDue = System.nanoTime();
+        }
+
+        public boolean isHeld() {
+            final long now = System.nanoTime();
+            if (now - checkDue >= 0) {
+                final boolean wasHeld = held;
+                try {
+                    held = tryAcquire(job);
+                } catch (final DataAccessException e) {
+                    log.warn("Could not renew the lease on {}: {}", job, e.getMessage());
+                    held = false;
+                }
+                checkDue = now + LEASE.toNanos() / 3;
+                if (held != wasHeld) {
+                    log.info("{} the lease on {}.", held ? "Acquired" : "Lost", job);
+                }
+            }
+            return held;
+        }
+
+        public void release() {
+            if (held) {
+                held = false;
+                SchedulerLock.this.release(job, Instant.now());
+            }
+        }
+    }
+}
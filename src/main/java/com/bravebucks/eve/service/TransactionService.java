@@ -1,5 +1,8 @@
 package com.bravebucks.eve.service;
 
+import java.util.Arrays;
+import java.util.List;
+
 import com.bravebucks.eve.domain.Transaction;
 import com.bravebucks.eve.repository.TransactionRepository;
 import org.slf4j.Logger;
@@ -18,8 +21,12 @@ public class TransactionService {
     private final Logger log = LoggerFactory.getLogger(TransactionService.class);
 
     private final TransactionRepository transactionRepository;
-    public TransactionService(TransactionRepository transactionRepository) {
+    private final AccountBalanceService accountBalanceService;
+
+    public TransactionService(TransactionRepository transactionRepository,
+                              AccountBalanceService accountBalanceService) {
         this.transactionRepository = transactionRepository;
+        this.accountBalanceService = accountBalanceService;
     }
 
     /**
@@ -30,7 +37,16 @@ public class TransactionService {
      */
     public Transaction save(Transaction transaction) {
         log.debug("Request to save Transaction : {}", transaction);
-        return transactionRepository.save(transaction);
+        final Transaction previous = null == transaction.getId() ? null : transactionRepository.findOne(transaction.getId());
+        final List<String> users = Arrays.asList(transaction.getUser(), null == previous ? null : previous.getUser());
+        return accountBalanceService.write(users, () -> {
+            final Transaction result = transactionRepository.save(transaction);
+            if (null != previous) {
+                accountBalanceService.removeTransaction(previous);
+            }
+            accountBalanceService.addTransaction(result);
+            return result;
+        });
     }
 
     /**
@@ -0,0 +1,186 @@
+package com.bravebucks.eve.service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.stream.Collectors;
+
+import javax.annotation.PostConstruct;
+
+import com.bravebucks.eve.config.ApplicationProperties;
+import com.bravebucks.eve.domain.CachedUniverseName;
+import com.bravebucks.eve.repository.UniverseNameRepository;
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Service;
+import org.springframework.web.client.RestClientException;
+
+/**
+ * Two-level cache in front of {@link UniverseNamesClient}.
+ * <p>
+ * Names are looked up in a size-bounded in-memory LRU first, then in the {@code universe_name} collection. Whatever is
+ * still missing is resolved with a single chunked ESI call and written back to both levels. A failing chunk only
+ * leaves its own names unresolved. The memory level is preloaded with the most recently resolved names at startup.
+ */
+@Service
+public class UniverseNameCache {
+
+    private static final Logger log = LoggerFactory.getLogger(UniverseNameCache.class);
+
+    private final UniverseNamesClient namesClient;
+    private final UniverseNameRepository universeNameRepository;
+    private final int maxSize;
+    private final Duration ttl;
+    private final Duration storeTtl;
+
+    private final Map<Integer, Entry> entries;
+    private final Meter hits;
+    private final Meter storeHits;
+    private final Meter misses;
+    private final Meter evictions;
+    private final Meter unresolved;
+
+    public UniverseNameCache(final UniverseNamesClient namesClient,
+                             final UniverseNameRepository universeNameRepository,
+                             final ApplicationProperties applicationProperties,
+                             final MetricRegistry metricRegistry) {
+        this.namesClient = namesClient;
+        this.universeNameRepository = universeNameRepository;
+        maxSize = applicationProperties.getNames().getMaxSize();
+        ttl = Duration.ofSeconds(applicationProperties.getNames().getTtl());
+        storeTtl = Duration.ofSeconds(applicationProperties.getNames().getStoreTtl());
+
+        hits = metricRegistry.meter(MetricRegistry.name(UniverseNameCache.class, "hits"));
+        storeHits = metricRegistry.meter(MetricRegistry.name(UniverseNameCache.class, "store-hits"));
+        misses = metricRegistry.meter(MetricRegistry.name(UniverseNameCache.class, "misses"));
+        evictions = metricRegistry.meter(MetricRegistry.name(UniverseNameCache.class, "evictions"));
+        unresolved = metricRegistry.meter(MetricRegistry.name(UniverseNameCache.class, "unresolved"));
+
+        entries = new LinkedHashMap<Integer, Entry>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(final Map.Entry<Integer, Entry> eldest) {
+                final boolean evict = size() > maxSize;
+                if (evict) {
+                    evictions.mark();
+                }
+                return evict;
+            }
+        };
+        metricRegistry.register(MetricRegistry.name(UniverseNameCache.class, "size"), (Gauge<Integer>) this::size);
+    }
+
+    @PostConstruct
+    public void preload() {
+        final PageRequest newest = new PageRequest(0, maxSize, Sort.Direction.DESC, "updated");
+        final List<CachedUniverseName> stored = universeNameRepository.findAll(newest).getContent();
+        final Instant now = Instant.now();
+        synchronized (entries) {
+            // oldest first, so the newest ones end up most recently used
+            for (int i = stored.size() - 1; i >= 0; i--) {
+                final CachedUniverseName name = stored.get(i);
+                if (isFresh(name, now)) {
+                    entries.put(name.getId(), new Entry(name.getName(), now.plus(ttl)));
+                }
+            }
+        }
+        log.info("Preloaded {} universe names.", size());
+    }
+
+    public String get(final Integer id) {
+        return get(Collections.singletonList(id)).get(id);
+    }
+
+    /**
+     * Resolves the names for all given ids, using at most one database query and one chunked ESI call.
+     *
+     * @return the names by id, without the ids that could not be resolved
+     */
+    public Map<Integer, String> get(final Collection<Integer> ids) {
+        final Map<Integer, String> result = new HashMap<>();
+        final Instant now = Instant.now();
+
+        final List<Integer> memoryMisses = new ArrayList<>();
+        synchronized (entries) {
+            for (final Integer id : ids.stream().filter(Objects::nonNull).distinct().collect(Collectors.toList())) {
+                final Entry entry = entries.get(id);
+                if (null != entry && entry.expiry.isAfter(now)) {
+                    result.put(id, entry.name);
+                } else {
+                    memoryMisses.add(id);
+                }
+            }
+        }
+        hits.mark(result.size());
+        if (memoryMisses.isEmpty()) {
+            return result;
+        }
+
+        final Map<Integer, String> resolved = new HashMap<>();
+        for (final CachedUniverseName stored : universeNameRepository.findAll(memoryMisses)) {
+            if (isFresh(stored, now)) {
+                resolved.put(stored.getId(), stored.getName());
+            }
+        }
+        storeHits.mark(resolved.size());
+
+        final List<Integer> storeMisses = memoryMisses.stream()
+                                                      .filter(id -> !resolved.containsKey(id))
+                                                      .collect(Collectors.toList());
+        if (!storeMisses.isEmpty()) {
+            misses.mark(storeMisses.size());
+            final Map<Integer, String> fetched = new HashMap<>();
+            for (final List<Integer> chunk : Chunks.of(storeMisses, Chunks.ESI_MAX_IDS)) {
+                try {
+                    namesClient.addNames(chunk, fetched);
+                } catch (final RestClientException e) {
+                    // the names of this chunk stay unresolved and are retried on the next lookup
+                    unresolved.mark(chunk.size());
+                    log.warn("Resolving {} universe names failed: {}", chunk.size(), e.getMessage());
+                }
+            }
+            universeNameRepository.save(fetched.entrySet().stream()
+                                               .map(e -> new CachedUniverseName(e.getKey(), e.getValue(), now))
+                                               .collect(Collectors.toList()));
+            resolved.putAll(fetched);
+        }
+
+        synchronized (entries) {
+            resolved.forEach((id, name) -> entries.put(id, new Entry(name, now.plus(ttl))));
+        }
+        result.putAll(resolved);
+        return result;
+    }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    private boolean isFresh(final CachedUniverseName name, final Instant now) {
+        return null != name.getUpdated() && name.getUpdated().plus(storeTtl).isAfter(now);
+    }
+
+    private static final class Entry {
+        private final String name;
+        private final Instant expiry;
+
+        private Entry(final String name, final Instant expiry) {
+            this.name = name;
+            this.expiry = expiry;
+        }
+    }
+}
@@ -52,20 +52,13 @@ public class UniverseNamesClient {
     }
 
     void addNames(List<Integer> ids, Map<Integer, String> result) {
-        for (int i = 0; i < ids.size(); i += 1000) {
-            int chunkSize = getNextChunkSize(ids.size(), i, 1000);
-            final List<Integer> chunk = ids.subList(i, i + chunkSize);
+        for (final List<Integer> chunk : Chunks.of(ids, Chunks.ESI_MAX_IDS)) {
             final UniverseName[] body = doCall(chunk).getBody();
             Arrays.stream(Objects.requireNonNull(body))
                 .forEach(el -> result.put(el.getId(), el.getName()));
         }
     }
 
-    int getNextChunkSize(int size, int current, int maxChunkSize) {
-        boolean isEnd = current + maxChunkSize > size;
-        return isEnd ? size - current : maxChunkSize;
-    }
-
     ResponseEntity<UniverseName[]> doCall(List<Integer> ids) {
         final String url = "https://esi.evetech.net/v3/universe/names/";
         final HttpEntity<Integer[]> request = new HttpEntity(ids, null);
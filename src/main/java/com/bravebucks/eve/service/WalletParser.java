@@ -2,20 +2,31 @@ package com.bravebucks.eve.service;
 
 import java.time.Instant;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 
+import javax.annotation.PreDestroy;
+
 import com.bravebucks.eve.DelayService;
+import com.bravebucks.eve.config.ApplicationProperties;
 import com.bravebucks.eve.domain.EveCharacter;
 import com.bravebucks.eve.domain.RattingEntry;
-import com.bravebucks.eve.domain.esi.AccessTokenResponse;
 import com.bravebucks.eve.domain.esi.WalletResponse;
 import com.bravebucks.eve.repository.CharacterRepository;
 import com.bravebucks.eve.repository.RattingEntryRepository;
 import com.bravebucks.eve.repository.SolarSystemRepository;
-import static com.bravebucks.eve.web.rest.UserJWTController.getBasicAuth;
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -24,21 +35,25 @@ import org.springframework.http.HttpEntity;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpMethod;
 import org.springframework.http.HttpStatus;
-import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
-import org.springframework.scheduling.annotation.Async;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
-import org.springframework.util.LinkedMultiValueMap;
-import org.springframework.util.MultiValueMap;
 import org.springframework.web.client.HttpClientErrorException;
 import org.springframework.web.client.HttpServerErrorException;
 import org.springframework.web.client.RestTemplate;
 
+/**
+ * Collects bounty payments from the wallet journals of all characters with a wallet read token.
+ * <p>
+ * Characters are processed concurrently by a fixed pool of {@code application.wallet.parallelism} threads. A cycle
+ * does not start while the previous one is still running, and characters are skipped while {@link DelayService}
+ * signals that the ESI error budget is nearly exhausted.
+ */
 @Service
 public class WalletParser {
 
     private static final Logger log = LoggerFactory.getLogger(WalletParser.class);
+    private static final String JOB = "wallet-parser";
 
     @Value("${WALLET_CLIENT_ID}")
     private String walletClientId;
@@ -52,96 +67,157 @@ public class WalletParser {
     private final DelayService delayService;
     private final SolarSystemRepository solarSystemRepository;
     private final CharacterRepository characterRepository;
+    private final AccessTokenCache accessTokenCache;
+    private final JobRunner jobRunner;
+
+    private final ExecutorService executor;
+    private final Timer cycleTimer;
+    private final Meter processedMeter;
+    private final Meter failedMeter;
+    private final Meter throttledMeter;
+    private volatile double lastCycleRate;
 
     public WalletParser(final RestTemplate restTemplate,
                         final AdmService admService,
                         final RattingEntryRepository rattingEntryRepository,
                         final DelayService delayService,
                         final SolarSystemRepository solarSystemRepository,
-                        final CharacterRepository characterRepository) {
+                        final CharacterRepository characterRepository,
+                        final AccessTokenCache accessTokenCache,
+                        final JobRunner jobRunner,
+                        final ApplicationProperties applicationProperties,
+                        final MetricRegistry metricRegistry) {
         this.restTemplate = restTemplate;
         this.admService = admService;
         this.rattingEntryRepository = rattingEntryRepository;
         this.delayService = delayService;
         this.solarSystemRepository = solarSystemRepository;
         this.characterRepository = characterRepository;
+        this.accessTokenCache = accessTokenCache;
+        this.jobRunner = jobRunner;
+
+        final AtomicInteger threadCount = new AtomicInteger();
+        executor = Executors.newFixedThreadPool(applicationProperties.getWallet().getParallelism(), runnable -> {
+            final Thread thread = new Thread(runnable, "wallet-parser-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        cycleTimer = metricRegistry.timer(MetricRegistry.name(WalletParser.class, "cycle"));
+        processedMeter = metricRegistry.meter(MetricRegistry.name(WalletParser.class, "processed"));
+        failedMeter = metricRegistry.meter(MetricRegistry.name(WalletParser.class, "failed"));
+        throttledMeter = metricRegistry.meter(MetricRegistry.name(WalletParser.class, "throttled"));
+        metricRegistry.register(MetricRegistry.name(WalletParser.class, "last-cycle-characters-per-second"),
+                                (Gauge<Double>) () -> lastCycleRate);
+    }
+
+    @PreDestroy
+    public void stop() {
+        executor.shutdownNow();
     }
 
-    @Async
     @Scheduled(cron = "0 */20 * * * *")
     public void collectNewJournalEntries() {
-        final long start = System.currentTimeMillis();
-        final Set<Integer> solarSystemIds = solarSystemRepository.findAllByTrackRatting(true).stream()
-                                                                 .map(s -> s.getSystemId().intValue())
-                                                                 .collect(Collectors.toSet());
+        jobRunner.runOnOneNode(JOB, this::collectAll);
+    }
+
+    private void collectAll() {
+        final Timer.Context cycle = cycleTimer.time();
+        int characterCount = 0;
+        try {
+            final Set<Integer> solarSystemIds = solarSystemRepository.findAllByTrackRatting(true).stream()
+                                                                     .map(s -> s.getSystemId().intValue())
+                                                                     .collect(Collectors.toSet());
+
+            final List<EveCharacter> characters = characterRepository.findByWalletReadRefreshTokenNotNull();
+            characterCount = characters.size();
+            final CompletableFuture<?>[] tasks = characters.stream()
+                                                           .map(c -> CompletableFuture.runAsync(
+                                                               () -> collect(c, solarSystemIds), executor))
+                                                           .toArray(CompletableFuture[]::new);
+            CompletableFuture.allOf(tasks).join();
+        } finally {
+            final long nanos = cycle.stop();
+            lastCycleRate = characterCount * (double) TimeUnit.SECONDS.toNanos(1) / Math.max(1, nanos);
+        }
+    }
+
+    private void collect(final EveCharacter character, final Set<Integer> solarSystemIds) {
+        if (delayService.shouldIChill()) {
+            throttledMeter.mark();
+            return;
+        }
+        try {
+            collectCharacter(character, solarSystemIds);
+            processedMeter.mark();
+        } catch (final RuntimeException e) {
+            failedMeter.mark();
+            log.warn("Collecting transactions for {} failed: {}", character.getId(), e.getMessage());
+        }
+    }
+
+    private void collectCharacter(final EveCharacter character, final Set<Integer> solarSystemIds) {
+        final String refreshToken = character.getWalletReadRefreshToken();
+        final int characterId = character.getId();
 
-        final List<EveCharacter> characters = characterRepository.findByWalletReadRefreshTokenNotNull();
+        try {
 
-        for (EveCharacter character : characters) {
-            final String refreshToken = character.getWalletReadRefreshToken();
-            final int characterId = character.getId();
+            final String eTag = character.getWalletJournalEtag();
+            final ResponseEntity<WalletResponse[]> walletResponse = getWalletResponse(refreshToken, characterId, eTag);
 
-            if (delayService.shouldIChill()) {
-                continue;
+            if (walletResponse.getStatusCode() != HttpStatus.OK || walletResponse.getBody() == null) {
+                log.info("No new transactions for {} (wallet response is {}).", characterId,
+                         walletResponse.getStatusCode());
+                return;
             }
 
-            try {
+            updateEtag(character, eTag, walletResponse);
 
-                final String eTag = character.getWalletJournalEtag();
-                final ResponseEntity<WalletResponse[]> walletResponse = getWalletResponse(refreshToken, characterId, eTag);
+            final List<WalletResponse> bounties = Arrays.stream(walletResponse.getBody())
+                                                        .filter(w -> "bounty_prizes".equals(w.getRefType()))
+                                                        .filter(w -> solarSystemIds.contains(w.getContextId().intValue()))
+                                                        .collect(Collectors.toList());
+            if (bounties.isEmpty()) {
+                return;
+            }
+            final Set<Long> existingJournalIds = rattingEntryRepository.findExistingJournalIds(
+                bounties.stream().map(WalletResponse::getId).collect(Collectors.toList()));
 
-                if (walletResponse.getStatusCode() != HttpStatus.OK || walletResponse.getBody() == null) {
-                    log.info("No new transactions for {} (wallet response is {}).", characterId,
-                             walletResponse.getStatusCode());
+            final List<RattingEntry> characterRattingEntries = new ArrayList<>();
+            for (WalletResponse walletEntry : bounties) {
+                if (existingJournalIds.contains(walletEntry.getId())) {
                     continue;
                 }
+                final Integer systemId = walletEntry.getContextId().intValue();
+                final double adm = admService.getAdm(systemId);
 
-                updateEtag(character, eTag, walletResponse);
-
-                final List<RattingEntry> characterRattingEntries = new ArrayList<>();
-                for (WalletResponse walletEntry : walletResponse.getBody()) {
-                    if ("bounty_prizes".equals(walletEntry.getRefType())
-                        && rattingEntryRepository.countByJournalId(walletEntry.getId()) == 0) {
-
-                        final Integer systemId = walletEntry.getContextId().intValue();
-                        if (!solarSystemIds.contains(systemId)) {
-                            continue;
-                        }
-                        final double adm = admService.getAdm(systemId);
-
-                        final String[] killSplit = walletEntry.getReason().split(",");
-                        int killCount = 0;
-                        for (String killCounter : killSplit) {
-                            killCount += Integer.parseInt(killCounter.split(": ")[1]);
-                        }
-                        final Instant instant = Instant.parse(walletEntry.getDate());
-
-                        final RattingEntry rattingEntry = new RattingEntry(walletEntry.getId(),
-                                                                           character.getOwningUser(),
-                                                                           characterId, killCount, systemId,
-                                                                           instant, adm);
-
-                        characterRattingEntries.add(rattingEntry);
-                    }
-                }
-                rattingEntryRepository.save(characterRattingEntries);
-            } catch (final HttpServerErrorException | HttpClientErrorException exception) {
-                log.info("No new transactions for {} (TQ status is {}): {}", characterId, exception.getStatusCode(),
-                         exception.getMessage());
-                if ("invalid_token".equals(exception.getStatusText())) {
-                    character.setWalletReadRefreshToken(null);
-                    characterRepository.save(character);
-                    log.info("Deactivated tracking for {} due to invalid refresh token.", character.getId());
-                }
+                final int killCount = BountyReasonParser.countKills(walletEntry.getReason());
+                final Instant instant = Instant.parse(walletEntry.getDate());
+
+                final RattingEntry rattingEntry = new RattingEntry(walletEntry.getId(),
+                                                                   character.getOwningUser(),
+                                                                   characterId, killCount, systemId,
+                                                                   instant, adm);
+
+                characterRattingEntries.add(rattingEntry);
+            }
+            rattingEntryRepository.insertIgnoringDuplicates(characterRattingEntries);
+        } catch (final HttpServerErrorException | HttpClientErrorException exception) {
+            log.info("No new transactions for {} (TQ status is {}): {}", characterId, exception.getStatusCode(),
+                     exception.getMessage());
+            if ("invalid_token".equals(exception.getStatusText())) {
+                character.setWalletReadRefreshToken(null);
+                characterRepository.save(character);
+                accessTokenCache.evict(characterId);
+                log.info("Deactivated tracking for {} due to invalid refresh token.", character.getId());
             }
         }
-        final long end = System.currentTimeMillis();
-        log.info("Collecting transactions took {} seconds.", (end - start) / 1000);
     }
 
     private ResponseEntity<WalletResponse[]> getWalletResponse(final String refreshToken, final int characterId,
                                                                final String eTag) {
-        final String accessToken = getAccessTokenWithRefreshToken(refreshToken, walletClientId, walletClientSecret);
+        final String accessToken = accessTokenCache.getAccessToken(characterId, refreshToken, walletClientId,
+                                                                   walletClientSecret);
         final String walletUri = "https://esi.evetech.net/v6/characters/" + characterId + "/wallet/journal/";
 
         return restTemplate.exchange(walletUri, HttpMethod.GET, authorizedRequest(accessToken,
@@ -157,23 +233,6 @@ public class WalletParser {
         }
     }
 
-    private String getAccessTokenWithRefreshToken(final String refreshToken, final String clientId,
-                                                  final String clientSecret) {
-        final HttpHeaders headers = new HttpHeaders();
-        headers.setContentType(MediaType.APPLICATION_FORM_URLENCODED);
-
-        final MultiValueMap<String, String> map = new LinkedMultiValueMap<>();
-        map.add("grant_type", "refresh_token");
-        map.add("refresh_token", refreshToken);
-        final String authHeader = getBasicAuth(clientId, clientSecret);
-        headers.add("Authorization", authHeader);
-
-        final HttpEntity<MultiValueMap<String, String>> request = new HttpEntity<>(map, headers);
-
-        return restTemplate.postForEntity("https://login.eveonline.com/oauth/token", request,
-                                          AccessTokenResponse.class).getBody().getAccessToken();
-    }
-
     private static HttpEntity<Object> authorizedRequest(final String accessToken, final String etag) {
         final HttpHeaders headers = buildAuthHeader(accessToken);
         if (null != etag) {
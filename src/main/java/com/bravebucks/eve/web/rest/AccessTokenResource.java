@@ -0,0 +1,43 @@
+package com.bravebucks.eve.web.rest;
+
+import java.time.Instant;
+import java.util.Map;
+
+import com.bravebucks.eve.security.AuthoritiesConstants;
+import com.bravebucks.eve.service.AccessTokenCache;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.security.access.annotation.Secured;
+import org.springframework.web.bind.annotation.*;
+
+/**
+ * Controller for inspecting the cached SSO access tokens. Only expiries are exposed, never the tokens.
+ */
+@RestController
+@RequestMapping("/management")
+@Secured(AuthoritiesConstants.ADMIN)
+public class AccessTokenResource {
+
+    private final AccessTokenCache accessTokenCache;
+
+    public AccessTokenResource(final AccessTokenCache accessTokenCache) {
+        this.accessTokenCache = accessTokenCache;
+    }
+
+    @GetMapping("/access-tokens")
+    public Map<Integer, Instant> getExpiries() {
+        return accessTokenCache.getExpiries();
+    }
+
+    @DeleteMapping("/access-tokens")
+    @ResponseStatus(HttpStatus.NO_CONTENT)
+    public void clear() {
+        accessTokenCache.clear();
+    }
+
+    @DeleteMapping("/access-tokens/{characterId}")
+    @ResponseStatus(HttpStatus.NO_CONTENT)
+    public void evict(@PathVariable final int characterId) {
+        accessTokenCache.evict(characterId);
+    }
+}
@@ -2,6 +2,7 @@ package com.bravebucks.eve.web.rest;
 
 import com.bravebucks.eve.security.AuthoritiesConstants;
 import com.bravebucks.eve.service.AllianceParser;
+import com.bravebucks.eve.service.JobRunner;
 
 import org.springframework.security.access.annotation.Secured;
 import org.springframework.web.bind.annotation.PostMapping;
@@ -14,13 +15,15 @@ import org.springframework.web.bind.annotation.RestController;
 public class AdminResource {
 
     private final AllianceParser allianceParser;
+    private final JobRunner jobRunner;
 
-    public AdminResource(final AllianceParser allianceParser) {
+    public AdminResource(final AllianceParser allianceParser, final JobRunner jobRunner) {
         this.allianceParser = allianceParser;
+        this.jobRunner = jobRunner;
     }
 
     @PostMapping("/update-alliances")
     public void updateAlliances() {
-        allianceParser.updateAlliances();
+        jobRunner.trigger(allianceParser::updateAlliances);
     }
 }
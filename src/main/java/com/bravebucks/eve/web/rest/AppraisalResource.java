@@ -1,8 +1,8 @@
 package com.bravebucks.eve.web.rest;
 
 import com.bravebucks.eve.domain.Appraisal;
+import com.bravebucks.eve.service.AppraisalService;
 import com.codahale.metrics.annotation.Timed;
-import com.mashape.unirest.http.exceptions.UnirestException;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -11,6 +11,7 @@ import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.client.RestClientException;
 
 
 /**
@@ -22,6 +23,12 @@ public class AppraisalResource {
 
     private final Logger log = LoggerFactory.getLogger(AppraisalResource.class);
 
+    private final AppraisalService appraisalService;
+
+    public AppraisalResource(final AppraisalService appraisalService) {
+        this.appraisalService = appraisalService;
+    }
+
     /**
      * POST  / : Execute an appraisal request.
      *
@@ -38,19 +45,12 @@ public class AppraisalResource {
         }
 
         try {
-            executeRequestAndUpdateAppraisal(appraisal);
-        } catch (UnirestException e) {
-            log.error("Unirest failed.", e);
+            appraisalService.appraise(appraisal);
+        } catch (RestClientException e) {
+            log.error("Appraisal failed.", e);
             return ResponseEntity.status(500).build();
         }
 
         return ResponseEntity.ok().body(appraisal);
     }
-
-    private void executeRequestAndUpdateAppraisal(final Appraisal appraisal) throws UnirestException {
-        appraisal.updateRaw();
-        appraisal.setLink(AppraisalUtil.getLinkFromRaw(appraisal.getRaw()));
-        appraisal.setTotalBuy(AppraisalUtil.getBuy(appraisal.getLink()));
-        appraisal.setItems(AppraisalUtil.getItems(appraisal.getLink()));
-    }
 }
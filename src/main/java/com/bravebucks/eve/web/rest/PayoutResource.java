@@ -8,6 +8,7 @@ import com.bravebucks.eve.repository.TransactionRepository;
 import com.bravebucks.eve.repository.UserRepository;
 import com.bravebucks.eve.security.AuthoritiesConstants;
 import com.bravebucks.eve.security.SecurityUtils;
+import com.bravebucks.eve.service.AccountBalanceService;
 import com.codahale.metrics.annotation.Timed;
 import com.bravebucks.eve.domain.Payout;
 
@@ -30,10 +31,9 @@ import java.net.URI;
 import java.net.URISyntaxException;
 
 import java.time.Instant;
-import java.util.HashMap;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
-import java.util.Map;
-import java.util.Objects;
 import java.util.Optional;
 
 import static com.bravebucks.eve.domain.Constants.ALLIANCE_ID;
@@ -53,13 +53,16 @@ public class PayoutResource {
     private final PayoutRepository payoutRepository;
     private final TransactionRepository transactionRepository;
     private final UserRepository userRepository;
+    private final AccountBalanceService accountBalanceService;
 
     public PayoutResource(PayoutRepository payoutRepository,
                           final TransactionRepository transactionRepository,
-                          final UserRepository userRepository) {
+                          final UserRepository userRepository,
+                          final AccountBalanceService accountBalanceService) {
         this.payoutRepository = payoutRepository;
         this.transactionRepository = transactionRepository;
         this.userRepository = userRepository;
+        this.accountBalanceService = accountBalanceService;
     }
 
     /**
@@ -79,7 +82,11 @@ public class PayoutResource {
         payout.setLastModifiedBy(SecurityUtils.getCurrentUserLogin());
         payout.setLastUpdated(Instant.now());
 
-        final Payout result = payoutRepository.save(payout);
+        final Payout result = accountBalanceService.write(Collections.singleton(payout.getUser()), () -> {
+            final Payout saved = payoutRepository.save(payout);
+            accountBalanceService.addPending(saved);
+            return saved;
+        });
 
         addTransactionIfPaid(result);
 
@@ -93,9 +100,12 @@ public class PayoutResource {
     public void markPaid(@PathVariable("id") final String id) {
         log.debug("REST request to mark Payout paid: {}", id);
         final Payout payout = payoutRepository.findOne(id);
-        payout.setStatus(PayoutStatus.PAID);
-        addTransactionIfPaid(payout);
-        payoutRepository.save(payout);
+        accountBalanceService.write(Collections.singleton(payout.getUser()), () -> {
+            accountBalanceService.removePending(payout);
+            payout.setStatus(PayoutStatus.PAID);
+            addTransactionIfPaid(payout);
+            return payoutRepository.save(payout);
+        });
     }
 
     @GetMapping("/payouts/pending")
@@ -109,34 +119,14 @@ public class PayoutResource {
     @Timed
     @Secured(AuthoritiesConstants.MANAGER)
     public ResponseEntity<Integer> countLargePayouts() {
-        final int count = extractAccountValues().entrySet().stream()
-                             .filter(stringDoubleEntry -> stringDoubleEntry.getValue() >= 100_000_000)
-                             .mapToInt(value -> 1).sum();
-        return ResponseEntity.ok(count);
+        return ResponseEntity.ok(transactionRepository.countUsersWithBalance(100_000_000, null));
     }
 
     @GetMapping("/payouts/small")
     @Timed
     @Secured(AuthoritiesConstants.MANAGER)
     public ResponseEntity<Integer> countSmallPayouts() {
-        final int count = extractAccountValues().entrySet().stream()
-                                                .filter(entry -> entry.getValue() >= 50_000_000
-                                                       && entry.getValue() < 100_000_000)
-                                                .mapToInt(value -> 1).sum();
-        return ResponseEntity.ok(count);
-    }
-
-    private Map<String, Double> extractAccountValues() {
-        Map<String, Double> map = new HashMap<>();
-        transactionRepository.findAll().forEach(transaction -> {
-            String user = transaction.getUser();
-            Double amount = transaction.getAmount();
-            if (map.containsKey(user)) {
-                amount += map.get(user);
-            }
-            map.put(user, amount);
-        });
-        return map;
+        return ResponseEntity.ok(transactionRepository.countUsersWithBalance(50_000_000, 100_000_000.0));
     }
 
     @PutMapping("/payouts/trigger")
@@ -149,17 +139,18 @@ public class PayoutResource {
             return ResponseEntity.badRequest().build();
         }
 
-        double sum = transactionRepository.findAllByUser(login).stream()
-                                          .mapToDouble(Transaction::getAmount).sum();
-        sum -= payoutRepository.findAllByUserAndStatus(login, PayoutStatus.REQUESTED)
-                               .stream().mapToDouble(Payout::getAmount).sum();
+        final double sum = accountBalanceService.getBalance(login);
 
         if (sum < PAYOUT_THRESHOLD) {
             return ResponseEntity.status(412).headers(HeaderUtil.createFailureAlert(ENTITY_NAME, "thresholdnotreached", "Payouts can only be requested from " + PAYOUT_THRESHOLD + " ISK.")).body(null);
         }
 
         final Payout payout = new Payout(login, sum, login, PayoutStatus.REQUESTED, null);
-        payoutRepository.save(payout);
+        accountBalanceService.write(Collections.singleton(login), () -> {
+            payoutRepository.save(payout);
+            accountBalanceService.addPending(payout);
+            return payout;
+        });
 
         return ResponseEntity.ok().build();
     }
@@ -192,7 +183,12 @@ public class PayoutResource {
         payout.setLastModifiedBy(SecurityUtils.getCurrentUserLogin());
         payout.setLastUpdated(Instant.now());
 
-        final Payout result = payoutRepository.save(payout);
+        final Payout result = accountBalanceService.write(Arrays.asList(existing.getUser(), payout.getUser()), () -> {
+            final Payout saved = payoutRepository.save(payout);
+            accountBalanceService.removePending(existing);
+            accountBalanceService.addPending(saved);
+            return saved;
+        });
 
         addTransactionIfPaid(result);
 
@@ -203,16 +199,26 @@ public class PayoutResource {
 
     private void addTransactionIfPaid(final Payout result) {
         if (PayoutStatus.PAID == result.getStatus()) {
-            transactionRepository.save(new Transaction(result.getUser(), -1 * result.getAmount(), TransactionType.PAYOUT));
+            final Transaction payoutTransaction = new Transaction(result.getUser(), -1 * result.getAmount(), TransactionType.PAYOUT);
+            saveTransaction(payoutTransaction);
 
             // while avend is gone, rihan takes over payments and gets paid back through bux
             final String currentUserLogin = SecurityUtils.getCurrentUserLogin();
             if (null != currentUserLogin && currentUserLogin.equals("Rihan Shazih")) {
-                transactionRepository.save(new Transaction("Rihan Shazih", result.getAmount(), TransactionType.PRIZE));
+                final Transaction prize = new Transaction("Rihan Shazih", result.getAmount(), TransactionType.PRIZE);
+                saveTransaction(prize);
             }
         }
     }
 
+    private void saveTransaction(final Transaction transaction) {
+        accountBalanceService.write(Collections.singleton(transaction.getUser()), () -> {
+            final Transaction saved = transactionRepository.save(transaction);
+            accountBalanceService.addTransaction(saved);
+            return saved;
+        });
+    }
+
     /**
      * GET  /payouts : get all the payouts.
      *
@@ -231,8 +237,7 @@ public class PayoutResource {
     @GetMapping("/payouts/total")
     @Secured(AuthoritiesConstants.MANAGER)
     public ResponseEntity<Double> getTotalPayouts() {
-        final double sum = transactionRepository.findAll().parallelStream().mapToDouble(Transaction::getAmount).sum();
-        return ResponseEntity.ok(sum);
+        return ResponseEntity.ok(transactionRepository.sumAmounts());
     }
 
     /**
@@ -268,7 +273,11 @@ public class PayoutResource {
             return ResponseEntity.badRequest().headers(HeaderUtil.createFailureAlert(ENTITY_NAME, "badstatus", "A payout with status PAID cannot be modified.")).body(null);
         }
 
-        payoutRepository.delete(id);
+        accountBalanceService.write(Collections.singleton(existing.getUser()), () -> {
+            payoutRepository.delete(id);
+            accountBalanceService.removePending(existing);
+            return existing;
+        });
         return ResponseEntity.ok().headers(HeaderUtil.createEntityDeletionAlert(ENTITY_NAME, id)).build();
     }
 }
@@ -2,9 +2,6 @@ package com.bravebucks.eve.web.rest;
 
 import java.time.Instant;
 import java.time.LocalDate;
-import java.time.temporal.ChronoUnit;
-import java.util.Arrays;
-import java.util.Date;
 import java.util.List;
 import java.util.Optional;
 import java.util.stream.Collectors;
@@ -12,44 +9,31 @@ import java.util.stream.Collectors;
 import com.bravebucks.eve.domain.Donation;
 import com.bravebucks.eve.domain.HighscoreEntry;
 import com.bravebucks.eve.domain.Killmail;
-import com.bravebucks.eve.domain.Payout;
-import com.bravebucks.eve.domain.Transaction;
 import com.bravebucks.eve.domain.User;
 import com.bravebucks.eve.domain.enumeration.TransactionType;
 import com.bravebucks.eve.repository.DonationRepository;
 import com.bravebucks.eve.repository.KillmailRepository;
-import com.bravebucks.eve.repository.PayoutRepository;
-import com.bravebucks.eve.repository.TransactionRepository;
 import com.bravebucks.eve.repository.UserRepository;
 import com.bravebucks.eve.security.AuthoritiesConstants;
 import com.bravebucks.eve.security.SecurityUtils;
+import com.bravebucks.eve.service.AccountBalanceService;
+import com.bravebucks.eve.service.HighscoreService;
+import com.bravebucks.eve.service.HighscoreService.Leaderboard;
+import com.bravebucks.eve.service.HighscoreService.Window;
 import com.bravebucks.eve.web.dto.KillmailDto;
 import com.codahale.metrics.annotation.Timed;
-import static com.bravebucks.eve.domain.enumeration.PayoutStatus.REQUESTED;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Sort;
-import org.springframework.data.mongodb.core.MongoTemplate;
-import org.springframework.data.mongodb.core.aggregation.Aggregation;
-import org.springframework.data.mongodb.core.aggregation.AggregationResults;
-import org.springframework.data.mongodb.core.aggregation.GroupOperation;
-import org.springframework.data.mongodb.core.aggregation.MatchOperation;
-import org.springframework.data.mongodb.core.aggregation.ProjectionOperation;
-import org.springframework.data.mongodb.core.aggregation.SortOperation;
-import org.springframework.data.mongodb.core.query.Criteria;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.annotation.Secured;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
-import static org.springframework.data.mongodb.core.aggregation.Aggregation.group;
-import static org.springframework.data.mongodb.core.aggregation.Aggregation.match;
-import static org.springframework.data.mongodb.core.aggregation.Aggregation.newAggregation;
-import static org.springframework.data.mongodb.core.aggregation.Aggregation.project;
-import static org.springframework.data.mongodb.core.aggregation.Aggregation.sort;
 
 @RestController
 @RequestMapping("/api")
@@ -60,47 +44,32 @@ public class PlayerStatsResource {
 
     private final KillmailRepository killmailRepository;
     private final UserRepository userRepository;
-    private final TransactionRepository transactionRepository;
-    private final PayoutRepository payoutRepository;
+    private final AccountBalanceService accountBalanceService;
     private final DonationRepository donationRepository;
-    private final MongoTemplate mongoTemplate ;
+    private final HighscoreService highscoreService;
 
     public PlayerStatsResource(final KillmailRepository killmailRepository,
                                final UserRepository userRepository,
-                               final TransactionRepository transactionRepository,
-                               final PayoutRepository payoutRepository,
+                               final AccountBalanceService accountBalanceService,
                                final DonationRepository donationRepository,
-                               final MongoTemplate mongoTemplate) {
+                               final HighscoreService highscoreService) {
         this.killmailRepository = killmailRepository;
         this.userRepository = userRepository;
-        this.transactionRepository = transactionRepository;
-        this.payoutRepository = payoutRepository;
+        this.accountBalanceService = accountBalanceService;
         this.donationRepository = donationRepository;
-        this.mongoTemplate = mongoTemplate;
+        this.highscoreService = highscoreService;
     }
 
     @GetMapping(path = "/stats/highscore/{type}")
-    public ResponseEntity<List<HighscoreEntry>> getHighscore(@PathVariable("type") final TransactionType type) {
-        if (!Arrays.asList(TransactionType.KILL, TransactionType.RATTING).contains(type)) {
+    public ResponseEntity<List<HighscoreEntry>> getHighscore(@PathVariable("type") final TransactionType type,
+                                                             @RequestParam(value = "window", defaultValue = "LAST_30_DAYS")
+                                                             final Window window) {
+        final Leaderboard leaderboard = highscoreService.getLeaderboard(type, window);
+        if (null == leaderboard) {
             return ResponseEntity.status(403).build();
         }
-        Date date = Date.from(Instant.now().minus(30, ChronoUnit.DAYS));
-        final MatchOperation filterByInstant = match(new Criteria("instant").gte(date));
-        final MatchOperation filterByType = match(new Criteria("type").is(type.name()));
-        final GroupOperation groupByStateAndSumPop = group("user").sum("amount").as("amount");
-        final SortOperation sortByPopDesc = sort(new Sort(Sort.Direction.DESC, "amount"));
-        final ProjectionOperation project = project().andExpression("_id").as("name")
-                                                .andExpression("amount").as("amount");
-
-        Aggregation aggregation = newAggregation(filterByInstant, filterByType, groupByStateAndSumPop, sortByPopDesc, project);
-        AggregationResults<HighscoreEntry> result = mongoTemplate.aggregate(
-            aggregation, "transaction", HighscoreEntry.class);
-
-        List<HighscoreEntry> list = result.getMappedResults();
-        if (list.size() > 10) {
-            list = list.subList(0, 10);
-        }
-        return ResponseEntity.ok(list);
+        // answered with 304 Not Modified when the client sends a matching If-None-Match
+        return ResponseEntity.ok().eTag(leaderboard.getEtag()).body(leaderboard.getEntries());
     }
 
     @GetMapping(path = "/stats/month-available")
@@ -118,11 +87,7 @@ public class PlayerStatsResource {
     @Timed
     public ResponseEntity<Double> getPotentialPayout() {
         final String user = SecurityUtils.getCurrentUserLogin();
-        double transactions = 0 + transactionRepository.findAllByUser(user).stream()
-                                                       .mapToDouble(Transaction::getAmount).sum();
-        double pendingPayouts = 0 + payoutRepository.findAllByUserAndStatus(user, REQUESTED)
-                          .stream().mapToDouble(Payout::getAmount).sum();
-        final double sum = transactions - pendingPayouts;
+        final double sum = accountBalanceService.getBalance(user);
         log.info("Potential Payout for {} is {}.", user, (int) sum);
         return ResponseEntity.ok(sum);
     }
@@ -2,19 +2,17 @@ package com.bravebucks.eve.web.rest;
 
 import com.bravebucks.eve.domain.enumeration.Region;
 import com.bravebucks.eve.security.AuthoritiesConstants;
-import com.bravebucks.eve.service.JsonRequestService;
+import com.bravebucks.eve.service.EsiSearchClient;
 import com.bravebucks.eve.domain.SolarSystem;
 
 import com.bravebucks.eve.repository.SolarSystemRepository;
 import com.bravebucks.eve.web.rest.util.HeaderUtil;
 import com.bravebucks.eve.web.rest.util.PaginationUtil;
 import com.codahale.metrics.annotation.Timed;
-import com.mashape.unirest.http.JsonNode;
 
 import io.github.jhipster.web.util.ResponseUtil;
 import io.swagger.annotations.ApiParam;
 
-import org.json.JSONObject;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.data.domain.Page;
@@ -43,11 +41,11 @@ public class SolarSystemResource {
     private static final String ENTITY_NAME = "solarSystem";
 
     private final SolarSystemRepository solarSystemRepository;
-    private final JsonRequestService jsonRequestService;
+    private final EsiSearchClient esiSearchClient;
     public SolarSystemResource(SolarSystemRepository solarSystemRepository,
-                               final JsonRequestService jsonRequestService) {
+                               final EsiSearchClient esiSearchClient) {
         this.solarSystemRepository = solarSystemRepository;
-        this.jsonRequestService = jsonRequestService;
+        this.esiSearchClient = esiSearchClient;
     }
 
     /**
@@ -67,17 +65,13 @@ public class SolarSystemResource {
 
         solarSystem.setSystemName(solarSystem.getSystemName().toUpperCase());
 
-        Optional<JsonNode> optional = jsonRequestService.searchSolarSystem(solarSystem.getSystemName());
-        if (optional.isPresent()) {
-            JSONObject object = optional.get().getObject();
-            if (object.has("solar_system")) {
-                long systemId = object.getJSONArray("solar_system").getLong(0);
-                solarSystem.setSystemId(systemId);
-                SolarSystem result = solarSystemRepository.save(solarSystem);
-                return ResponseEntity.created(new URI("/api/solar-systems/" + result.getId()))
-                                     .headers(HeaderUtil.createEntityCreationAlert(ENTITY_NAME, result.getId().toString()))
-                                     .body(result);
-            }
+        Optional<Long> systemId = esiSearchClient.findSolarSystemId(solarSystem.getSystemName());
+        if (systemId.isPresent()) {
+            solarSystem.setSystemId(systemId.get());
+            SolarSystem result = solarSystemRepository.save(solarSystem);
+            return ResponseEntity.created(new URI("/api/solar-systems/" + result.getId()))
+                                 .headers(HeaderUtil.createEntityCreationAlert(ENTITY_NAME, result.getId().toString()))
+                                 .body(result);
         }
         return ResponseEntity.badRequest().headers(HeaderUtil.createFailureAlert(ENTITY_NAME, "notresolved",
                                                                                  "The system could not be found. Is there a typo?")).body(null);
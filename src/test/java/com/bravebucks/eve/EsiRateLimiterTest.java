@@ -0,0 +1,44 @@
+package com.bravebucks.eve;
+
+import java.util.concurrent.TimeUnit;
+
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.Timer;
+
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class EsiRateLimiterTest {
+
+    @Test
+    public void groupsByFirstSegmentAfterVersion() {
+        assertEquals("characters", EsiRateLimiter.getGroup("/v4/characters/1/"));
+        assertEquals("universe", EsiRateLimiter.getGroup("/latest/universe/names/"));
+        assertEquals("sovereignty", EsiRateLimiter.getGroup("/sovereignty/structures/"));
+    }
+
+    @Test
+    public void spacesRequestsAfterBurst() {
+        final EsiRateLimiter.Group group = new EsiRateLimiter.Group(10, 2, new Meter(), new Meter(), new Timer());
+        final long now = System.nanoTime();
+        final long maxWait = TimeUnit.SECONDS.toNanos(1);
+
+        assertEquals(0, group.reserve(now, maxWait));
+        assertEquals(0, group.reserve(now, maxWait));
+        final long first = group.reserve(now, maxWait);
+        final long second = group.reserve(now, maxWait);
+
+        assertTrue(first > 0 && first <= TimeUnit.MILLISECONDS.toNanos(101));
+        assertTrue(second > first);
+    }
+
+    @Test
+    public void shedsWhenWaitExceedsMaximum() {
+        final EsiRateLimiter.Group group = new EsiRateLimiter.Group(1, 1, new Meter(), new Meter(), new Timer());
+        final long now = System.nanoTime();
+
+        assertEquals(0, group.reserve(now, 0));
+        assertEquals(-1, group.reserve(now, TimeUnit.MILLISECONDS.toNanos(500)));
+    }
+}
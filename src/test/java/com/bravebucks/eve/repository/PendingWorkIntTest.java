@@ -0,0 +1,86 @@
+package com.bravebucks.eve.repository;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicReference;
+
+import com.bravebucks.eve.BraveBucksApp;
+import com.bravebucks.eve.domain.Killmail;
+import com.bravebucks.eve.web.rest.EnvironmentTestConfiguration;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.spy;
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+
+/**
+ * Claims pending killmails against the embedded Mongo while another run claims some of them concurrently.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(classes = BraveBucksApp.class)
+@ContextConfiguration(initializers = EnvironmentTestConfiguration.class)
+public class PendingWorkIntTest {
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private KillmailRepository killmailRepository;
+
+    private final AtomicReference<Runnable> afterFind = new AtomicReference<>();
+
+    private KillmailRepositoryImpl sut;
+
+    @Before
+    public void setup() {
+        killmailRepository.deleteAll();
+
+        // runs the concurrent claim once, right after the pending killmails were read
+        final MongoTemplate template = spy(mongoTemplate);
+        doAnswer(invocation -> {
+            final Object results = invocation.callRealMethod();
+            final Runnable write = afterFind.getAndSet(null);
+            if (null != write) {
+                write.run();
+            }
+            return results;
+        }).when(template).find(any(Query.class), eq(Killmail.class));
+        sut = new KillmailRepositoryImpl(template);
+    }
+
+    @Test
+    public void claimsOnlyWhatTheRunTagged() {
+        killmailRepository.save(Arrays.asList(killmail(1L), killmail(2L), killmail(3L)));
+        afterFind.set(() -> mongoTemplate.updateFirst(new Query(where("_id").is(2L)),
+                                                      Update.update(PendingWork.RUN, "other"), Killmail.class));
+
+        assertThat(sut.claimPending("run")).extracting(Killmail::getKillId).containsExactlyInAnyOrder(1L, 3L);
+        assertThat(sut.findClaimed("other")).extracting(Killmail::getKillId).containsExactly(2L);
+    }
+
+    @Test
+    public void claimsNothingTwice() {
+        killmailRepository.save(Arrays.asList(killmail(1L), killmail(2L)));
+
+        assertThat(sut.claimPending("first")).hasSize(2);
+        assertThat(sut.claimPending("second")).isEmpty();
+    }
+
+    private static Killmail killmail(final long killId) {
+        final Killmail killmail = new Killmail();
+        killmail.setKillId(killId);
+        return killmail;
+    }
+}
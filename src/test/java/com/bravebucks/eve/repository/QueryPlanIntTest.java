@@ -0,0 +1,220 @@
+package com.bravebucks.eve.repository;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.bravebucks.eve.BraveBucksApp;
+import com.bravebucks.eve.domain.EveCharacter;
+import com.bravebucks.eve.domain.Killmail;
+import com.bravebucks.eve.domain.Payout;
+import com.bravebucks.eve.domain.RattingEntry;
+import com.bravebucks.eve.domain.Transaction;
+import com.bravebucks.eve.domain.User;
+import com.bravebucks.eve.domain.enumeration.PayoutStatus;
+import com.bravebucks.eve.service.HighscoreService;
+import com.bravebucks.eve.web.rest.EnvironmentTestConfiguration;
+import com.mongodb.BasicDBObject;
+import com.mongodb.DB;
+import com.mongodb.DBObject;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationContext;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.repository.core.RepositoryInformation;
+import org.springframework.data.repository.support.Repositories;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Calls every repository finder with the Mongo profiler on and fails if any query it issued was answered by a
+ * collection scan.
+ * <p>
+ * Every query method of every repository, including the custom ones, must either be called below or be listed as an
+ * intended scan, so a new finder cannot be added without deciding on its index.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(classes = BraveBucksApp.class)
+@ContextConfiguration(initializers = EnvironmentTestConfiguration.class)
+public class QueryPlanIntTest {
+
+    private static final Map<String, String> INTENDED_SCANS = new HashMap<>();
+
+    static {
+        INTENDED_SCANS.put("UserRepository.findAllByLoginNot", "admin user list, pages through all users");
+        INTENDED_SCANS.put("UserRepository.findAllByCharacterIdNotNull", "membership index, reads all users");
+        INTENDED_SCANS.put("UserRepository.findAllByWalletReadRefreshTokensNotNull", "deprecated field");
+        INTENDED_SCANS.put("CharacterRepository.findByWalletReadRefreshTokenNotNull",
+                           "wallet parser, reads nearly all characters");
+        INTENDED_SCANS.put("TransactionRepository.sumAmounts", "sums the whole ledger once per stats refresh");
+        INTENDED_SCANS.put("TransactionRepository.countUsersWithBalance",
+                           "groups the whole ledger once per stats refresh");
+        INTENDED_SCANS.put("SolarSystemRepository.findByRegion", "a few hundred systems");
+        INTENDED_SCANS.put("SolarSystemRepository.findAllByTrackRatting", "a few hundred systems");
+        INTENDED_SCANS.put("SolarSystemRepository.findAllByTrackPvp", "a few hundred systems");
+        INTENDED_SCANS.put("AdRequestRepository.findByAdStatus", "a few requests per month");
+        INTENDED_SCANS.put("AdRequestRepository.findByMonth", "a few requests per month");
+        INTENDED_SCANS.put("AdRequestRepository.findByServiceAndMonth", "a few requests per month");
+        INTENDED_SCANS.put("AdRequestRepository.countByAdStatus", "a few requests per month");
+        INTENDED_SCANS.put("DonationRepository.findByMonth", "a few donations per month");
+        INTENDED_SCANS.put("PersistenceAuditEventRepository.findByPrincipal", "admin audit pages only");
+        INTENDED_SCANS.put("PersistenceAuditEventRepository.findByAuditEventDateAfter", "admin audit pages only");
+        INTENDED_SCANS.put("PersistenceAuditEventRepository.findByPrincipalAndAuditEventDateAfter",
+                           "admin audit pages only");
+        INTENDED_SCANS.put("PersistenceAuditEventRepository.findByPrincipalAndAuditEventDateAfterAndAuditEventType",
+                           "admin audit pages only");
+        INTENDED_SCANS.put("PersistenceAuditEventRepository.findAllByAuditEventDateBetween", "admin audit pages only");
+    }
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private ApplicationContext applicationContext;
+
+    @Autowired
+    private KillmailRepository killmailRepository;
+
+    @Autowired
+    private RattingEntryRepository rattingEntryRepository;
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @Autowired
+    private PayoutRepository payoutRepository;
+
+    @Autowired
+    private CharacterRepository characterRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private HighscoreService highscoreService;
+
+    private final Map<String, Finder> finders = new LinkedHashMap<>();
+
+    {
+        finder("KillmailRepository.findByAttackerId", Killmail.class,
+               () -> killmailRepository.findByAttackerId(1L, new PageRequest(0, 10)));
+        finder("KillmailRepository.findByKillId", Killmail.class, () -> killmailRepository.findByKillId(1L));
+        finder("KillmailRepository.findExistingKillIds", Killmail.class,
+               () -> killmailRepository.findExistingKillIds(Arrays.asList(1L, 2L)));
+        finder("KillmailRepository.findNewestKillIds", Killmail.class, () -> killmailRepository.findNewestKillIds(10));
+        finder("KillmailRepository.insertIgnoringDuplicates", Killmail.class,
+               () -> killmailRepository.insertIgnoringDuplicates(Collections.emptyList()));
+        finder("KillmailRepository.findUnfinishedPayoutRun", Killmail.class,
+               () -> killmailRepository.findUnfinishedPayoutRun());
+        finder("KillmailRepository.claimPending", Killmail.class, () -> killmailRepository.claimPending("run"));
+        finder("KillmailRepository.findClaimed", Killmail.class, () -> killmailRepository.findClaimed("run"));
+        finder("KillmailRepository.completePayoutRun", Killmail.class,
+               () -> killmailRepository.completePayoutRun("run"));
+        finder("RattingEntryRepository.findExistingJournalIds", RattingEntry.class,
+               () -> rattingEntryRepository.findExistingJournalIds(Arrays.asList(1L, 2L)));
+        finder("RattingEntryRepository.insertIgnoringDuplicates", RattingEntry.class,
+               () -> rattingEntryRepository.insertIgnoringDuplicates(Collections.emptyList()));
+        finder("RattingEntryRepository.findUnfinishedPayoutRun", RattingEntry.class,
+               () -> rattingEntryRepository.findUnfinishedPayoutRun());
+        finder("RattingEntryRepository.claimPending", RattingEntry.class,
+               () -> rattingEntryRepository.claimPending("run"));
+        finder("RattingEntryRepository.findClaimed", RattingEntry.class,
+               () -> rattingEntryRepository.findClaimed("run"));
+        finder("RattingEntryRepository.completePayoutRun", RattingEntry.class,
+               () -> rattingEntryRepository.completePayoutRun("run"));
+        finder("TransactionRepository.findAllByUser", Transaction.class,
+               () -> transactionRepository.findAllByUser("user"));
+        finder("TransactionRepository.insertIgnoringDuplicates", Transaction.class,
+               () -> transactionRepository.insertIgnoringDuplicates(Collections.emptyList(), 10));
+        finder("HighscoreService.refresh", Transaction.class, () -> highscoreService.refresh());
+        finder("PayoutRepository.findOneByUser", Payout.class, () -> payoutRepository.findOneByUser("user"));
+        finder("PayoutRepository.findAllByUserAndStatus", Payout.class,
+               () -> payoutRepository.findAllByUserAndStatus("user", PayoutStatus.REQUESTED));
+        finder("PayoutRepository.countByStatus", Payout.class,
+               () -> payoutRepository.countByStatus(PayoutStatus.REQUESTED));
+        finder("CharacterRepository.findByOwningUser", EveCharacter.class,
+               () -> characterRepository.findByOwningUser("user"));
+        finder("CharacterRepository.findByNameAndOwningUser", EveCharacter.class,
+               () -> characterRepository.findByNameAndOwningUser("name", "user"));
+        finder("UserRepository.findOneByLogin", User.class, () -> userRepository.findOneByLogin("login"));
+        finder("UserRepository.findOneByCharacterId", User.class, () -> userRepository.findOneByCharacterId(1L));
+        finder("UserRepository.findAllByCharacterIdNotNullAndAllianceId", User.class,
+               () -> userRepository.findAllByCharacterIdNotNullAndAllianceId(1));
+        finder("UserRepository.updateAllianceIds", User.class,
+               () -> userRepository.updateAllianceIds(Collections.singletonMap("user", 1)));
+    }
+
+    @Test
+    public void everyFinderIsCalled() {
+        final List<String> unchecked = new ArrayList<>();
+        final Repositories repositories = new Repositories(applicationContext);
+        for (final Class<?> domainType : repositories) {
+            final RepositoryInformation information = repositories.getRepositoryInformationFor(domainType);
+            final String repository = information.getRepositoryInterface().getSimpleName();
+            final List<Method> methods = new ArrayList<>(information.getQueryMethods());
+            for (final Class<?> custom : information.getRepositoryInterface().getInterfaces()) {
+                if (custom.getSimpleName().endsWith("Custom")) {
+                    methods.addAll(Arrays.asList(custom.getDeclaredMethods()));
+                }
+            }
+            for (final Method method : methods) {
+                final String name = repository + "." + method.getName();
+                if (!finders.containsKey(name) && !INTENDED_SCANS.containsKey(name)) {
+                    unchecked.add(name);
+                }
+            }
+        }
+        assertThat(unchecked).isEmpty();
+    }
+
+    @Test
+    public void noFinderScansTheCollection() {
+        final List<String> scans = new ArrayList<>();
+        finders.forEach((name, finder) -> profile(finder).forEach(query -> scans.add(name + ": " + query)));
+        assertThat(scans).isEmpty();
+    }
+
+    private void finder(final String name, final Class<?> type, final Runnable call) {
+        finders.put(name, new Finder(type, call));
+    }
+
+    /**
+     * @return the profiled operations of the call on its collection that were answered by a collection scan
+     */
+    private List<DBObject> profile(final Finder finder) {
+        final DB db = mongoTemplate.getDb();
+        db.command(new BasicDBObject("profile", 0));
+        db.getCollection("system.profile").drop();
+        db.command(new BasicDBObject("profile", 2));
+        try {
+            finder.call.run();
+        } finally {
+            db.command(new BasicDBObject("profile", 0));
+        }
+        final String namespace = db.getName() + "." + mongoTemplate.getCollectionName(finder.type);
+        return db.getCollection("system.profile")
+                 .find(new BasicDBObject("ns", namespace).append("planSummary", "COLLSCAN"))
+                 .toArray();
+    }
+
+    private static final class Finder {
+        private final Class<?> type;
+        private final Runnable call;
+
+        private Finder(final Class<?> type, final Runnable call) {
+            this.type = type;
+            this.call = call;
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package com.bravebucks.eve.repository;
+
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import com.bravebucks.eve.BraveBucksApp;
+import com.bravebucks.eve.config.dbmigrations.AddRattingEntryJournalIndex;
+import com.bravebucks.eve.domain.RattingEntry;
+import com.bravebucks.eve.web.rest.EnvironmentTestConfiguration;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.IndexInfo;
+import org.springframework.data.mongodb.core.index.IndexOperations;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Checks that a wallet journal page is stored once per journal id, see AddRattingEntryJournalIndex and
+ * WalletParser.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(classes = BraveBucksApp.class)
+@ContextConfiguration(initializers = EnvironmentTestConfiguration.class)
+public class RattingEntryRepositoryIntTest {
+
+    @Autowired
+    private RattingEntryRepository rattingEntryRepository;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Before
+    public void setup() {
+        rattingEntryRepository.deleteAll();
+    }
+
+    @Test
+    public void insertsOnlyNewJournalIdsOfAPage() {
+        rattingEntryRepository.save(Arrays.asList(entry(1L), entry(2L)));
+        final List<RattingEntry> page = Arrays.asList(entry(1L), entry(2L), entry(3L), entry(4L));
+
+        final List<Long> journalIds = page.stream().map(RattingEntry::getJournalId).collect(Collectors.toList());
+        assertThat(rattingEntryRepository.findExistingJournalIds(journalIds)).containsOnly(1L, 2L);
+
+        // the page is inserted as a whole, the unique index rejects the stored ones
+        assertThat(rattingEntryRepository.insertIgnoringDuplicates(page)).isEqualTo(2);
+        assertThat(rattingEntryRepository.findAll()).extracting(RattingEntry::getJournalId)
+                                                    .containsExactlyInAnyOrder(1L, 2L, 3L, 4L);
+    }
+
+    @Test
+    public void skipsDuplicatesWithinAPage() {
+        assertThat(rattingEntryRepository.insertIgnoringDuplicates(Arrays.asList(entry(5L), entry(5L), entry(6L))))
+            .isEqualTo(2);
+        assertThat(rattingEntryRepository.count()).isEqualTo(2);
+    }
+
+    @Test
+    public void migrationKeepsThePaidOutDuplicate() {
+        final IndexOperations indexOps = mongoTemplate.indexOps(RattingEntry.class);
+        for (final IndexInfo index : indexOps.getIndexInfo()) {
+            if (index.isIndexForFields(Arrays.asList("journalId"))) {
+                indexOps.dropIndex(index.getName());
+            }
+        }
+        final RattingEntry paid = entry(7L);
+        paid.setProcessed(true);
+        rattingEntryRepository.save(Arrays.asList(entry(7L), paid, entry(7L), entry(8L)));
+
+        new AddRattingEntryJournalIndex().addUniqueJournalIdIndex(mongoTemplate);
+
+        final List<RattingEntry> entries = rattingEntryRepository.findAll();
+        assertThat(entries).extracting(RattingEntry::getJournalId).containsExactlyInAnyOrder(7L, 8L);
+        assertThat(entries.stream().filter(e -> e.getJournalId() == 7L).findFirst().get().isProcessed()).isTrue();
+        assertThat(indexOps.getIndexInfo().stream()
+                           .filter(index -> index.isIndexForFields(Arrays.asList("journalId")))
+                           .map(IndexInfo::isUnique)
+                           .collect(Collectors.toList())).containsExactly(true);
+    }
+
+    private static RattingEntry entry(final long journalId) {
+        return new RattingEntry(journalId, "user", 1, 10, 30000142, Instant.now(), 4.0);
+    }
+}
@@ -0,0 +1,78 @@
+package com.bravebucks.eve.repository;
+
+import java.util.Arrays;
+
+import com.bravebucks.eve.BraveBucksApp;
+import com.bravebucks.eve.domain.Transaction;
+import com.bravebucks.eve.domain.enumeration.TransactionType;
+import com.bravebucks.eve.web.rest.EnvironmentTestConfiguration;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Runs the ledger aggregations of {@link TransactionRepositoryImpl} against the embedded Mongo.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(classes = BraveBucksApp.class)
+@ContextConfiguration(initializers = EnvironmentTestConfiguration.class)
+public class TransactionRepositoryIntTest {
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @Before
+    public void setup() {
+        transactionRepository.deleteAll();
+    }
+
+    @Test
+    public void emptyLedger() {
+        assertThat(transactionRepository.sumAmounts()).isEqualTo(0.0);
+        assertThat(transactionRepository.countUsersWithBalance(100_000_000, null)).isEqualTo(0);
+        assertThat(transactionRepository.countUsersWithBalance(50_000_000, 100_000_000.0)).isEqualTo(0);
+    }
+
+    @Test
+    public void sumsAllAmounts() {
+        transactionRepository.save(Arrays.asList(transaction("a", 60_000_000.0), transaction("a", -10_000_000.0),
+                                                 transaction("b", 2_500.5)));
+
+        assertThat(transactionRepository.sumAmounts()).isEqualTo(50_002_500.5);
+    }
+
+    @Test
+    public void countsBalancesOfAtLeastTheMinimum() {
+        transactionRepository.save(Arrays.asList(
+            // exactly 100M over two transactions
+            transaction("exact", 60_000_000.0), transaction("exact", 40_000_000.0),
+            transaction("above", 150_000_000.0),
+            // 100M before a payout
+            transaction("paid", 100_000_000.0), transaction("paid", -1.0),
+            transaction("below", 99_999_999.0)));
+
+        assertThat(transactionRepository.countUsersWithBalance(100_000_000, null)).isEqualTo(2);
+    }
+
+    @Test
+    public void bandExcludesItsUpperBound() {
+        transactionRepository.save(Arrays.asList(transaction("lower", 50_000_000.0),
+                                                 transaction("inside", 75_000_000.0),
+                                                 transaction("upper", 100_000_000.0),
+                                                 transaction("below", 49_999_999.0),
+                                                 transaction("above", 120_000_000.0)));
+
+        assertThat(transactionRepository.countUsersWithBalance(50_000_000, 100_000_000.0)).isEqualTo(2);
+    }
+
+    private static Transaction transaction(final String user, final double amount) {
+        return new Transaction(user, amount, TransactionType.KILL);
+    }
+}
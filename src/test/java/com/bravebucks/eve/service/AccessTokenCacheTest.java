@@ -0,0 +1,120 @@
+package com.bravebucks.eve.service;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import com.bravebucks.eve.domain.esi.AccessTokenResponse;
+import com.codahale.metrics.MetricRegistry;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.ResponseEntity;
+import org.springframework.util.MultiValueMap;
+import org.springframework.web.client.RestClientException;
+import org.springframework.web.client.RestTemplate;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class AccessTokenCacheTest {
+
+    private RestTemplate restTemplate = mock(RestTemplate.class);
+    private AccessTokenCache sut = new AccessTokenCache(restTemplate, new MetricRegistry());
+
+    @Before
+    public void setUp() {
+        when(restTemplate.postForEntity(anyString(), any(HttpEntity.class), eq(AccessTokenResponse.class)))
+            .thenReturn(ResponseEntity.ok(response("first", 1200)), ResponseEntity.ok(response("second", 1200)));
+    }
+
+    @Test
+    public void reusesTokenUntilExpiry() {
+        assertEquals("first", sut.getAccessToken(1, "refresh", "client", "secret"));
+        assertEquals("first", sut.getAccessToken(1, "refresh", "client", "secret"));
+
+        verify(restTemplate, times(1)).postForEntity(anyString(), any(HttpEntity.class), eq(AccessTokenResponse.class));
+    }
+
+    @Test
+    public void refreshesForNewRefreshToken() {
+        sut.getAccessToken(1, "refresh", "client", "secret");
+
+        assertEquals("second", sut.getAccessToken(1, "other", "client", "secret"));
+    }
+
+    @Test
+    public void refreshesAheadOfExpiry() {
+        when(restTemplate.postForEntity(anyString(), any(HttpEntity.class), eq(AccessTokenResponse.class)))
+            .thenReturn(ResponseEntity.ok(response("short", 30)), ResponseEntity.ok(response("second", 1200)));
+        sut.getAccessToken(1, "refresh", "client", "secret");
+
+        assertEquals("second", sut.getAccessToken(1, "refresh", "client", "secret"));
+    }
+
+    @Test
+    public void concurrentRequestsWaitForOneRefresh() throws Exception {
+        final CountDownLatch requested = new CountDownLatch(1);
+        final CountDownLatch respond = new CountDownLatch(1);
+        when(restTemplate.postForEntity(anyString(), any(HttpEntity.class), eq(AccessTokenResponse.class)))
+            .thenAnswer(invocation -> {
+                final MultiValueMap<?, ?> body = (MultiValueMap<?, ?>) ((HttpEntity<?>) invocation.getArguments()[1])
+                    .getBody();
+                if ("other".equals(body.getFirst("refresh_token"))) {
+                    return ResponseEntity.ok(response("other", 1200));
+                }
+                requested.countDown();
+                respond.await();
+                return ResponseEntity.ok(response("slow", 1200));
+            });
+        final ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            final Future<String> first = executor.submit(() -> sut.getAccessToken(1, "refresh", "client", "secret"));
+            requested.await();
+            final Future<String> second = executor.submit(() -> sut.getAccessToken(1, "refresh", "client", "secret"));
+            // other characters are not blocked by the refresh in progress
+            assertEquals("other", sut.getAccessToken(2, "other", "client", "secret"));
+
+            respond.countDown();
+
+            assertEquals("slow", first.get(5, TimeUnit.SECONDS));
+            assertEquals("slow", second.get(5, TimeUnit.SECONDS));
+            verify(restTemplate, times(2)).postForEntity(anyString(), any(HttpEntity.class),
+                                                         eq(AccessTokenResponse.class));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void doesNotCacheFailedRefresh() {
+        when(restTemplate.postForEntity(anyString(), any(HttpEntity.class), eq(AccessTokenResponse.class)))
+            .thenThrow(new RestClientException("down"))
+            .thenReturn(ResponseEntity.ok(response("second", 1200)));
+        try {
+            sut.getAccessToken(1, "refresh", "client", "secret");
+            fail("the failed refresh must be thrown");
+        } catch (final RestClientException expected) {
+            assertTrue(sut.getExpiries().isEmpty());
+        }
+
+        assertEquals("second", sut.getAccessToken(1, "refresh", "client", "secret"));
+    }
+
+    private static AccessTokenResponse response(final String accessToken, final int expiresIn) {
+        final AccessTokenResponse response = new AccessTokenResponse();
+        response.setAccessToken(accessToken);
+        response.setExpiresIn(expiresIn);
+        return response;
+    }
+}
@@ -0,0 +1,188 @@
+package com.bravebucks.eve.service;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicReference;
+
+import com.bravebucks.eve.BraveBucksApp;
+import com.bravebucks.eve.domain.AccountBalance;
+import com.bravebucks.eve.domain.Payout;
+import com.bravebucks.eve.domain.Transaction;
+import com.bravebucks.eve.domain.enumeration.PayoutStatus;
+import com.bravebucks.eve.domain.enumeration.TransactionType;
+import com.bravebucks.eve.repository.AccountBalanceRepository;
+import com.bravebucks.eve.repository.PayoutRepository;
+import com.bravebucks.eve.repository.TransactionRepository;
+import com.bravebucks.eve.web.rest.EnvironmentTestConfiguration;
+import com.mongodb.DBObject;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.when;
+
+/**
+ * Runs the reconciliation against the embedded Mongo while increments arrive between reading the balances and
+ * correcting them.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(classes = BraveBucksApp.class)
+@ContextConfiguration(initializers = EnvironmentTestConfiguration.class)
+public class AccountBalanceServiceIntTest {
+
+    private static final String USER = "user";
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private AccountBalanceRepository accountBalanceRepository;
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @Autowired
+    private PayoutRepository payoutRepository;
+
+    private final AtomicReference<Runnable> duringAggregation = new AtomicReference<>();
+
+    private AccountBalanceService sut;
+
+    @Before
+    public void setUp() {
+        accountBalanceRepository.deleteAll();
+        transactionRepository.deleteAll();
+        payoutRepository.deleteAll();
+
+        // runs the concurrent write once, right after the ledger was aggregated
+        final MongoTemplate template = spy(mongoTemplate);
+        doAnswer(invocation -> {
+            final Object results = invocation.callRealMethod();
+            final Runnable write = duringAggregation.getAndSet(null);
+            if (null != write) {
+                write.run();
+            }
+            return results;
+        }).when(template).aggregate(any(Aggregation.class), anyString(), eq(DBObject.class));
+
+        final JobRunner jobRunner = mock(JobRunner.class);
+        when(jobRunner.runOnOneNode(anyString(), any(Runnable.class))).thenAnswer(invocation -> {
+            ((Runnable) invocation.getArguments()[1]).run();
+            return true;
+        });
+        sut = new AccountBalanceService(accountBalanceRepository, template, jobRunner);
+    }
+
+    @Test
+    public void correctsDriftAndRemovesStaleBalances() {
+        transactionRepository.save(new Transaction(USER, 100.0, TransactionType.KILL));
+        accountBalanceRepository.save(new AccountBalance(USER, 90, 0));
+        accountBalanceRepository.save(new AccountBalance("stale", 10, 0));
+
+        sut.reconcile();
+
+        assertThat(sut.getBalance(USER)).isEqualTo(100.0);
+        assertThat(accountBalanceRepository.findOne("stale")).isNull();
+    }
+
+    @Test
+    public void keepsTransactionAddedDuringRebuild() {
+        transactionRepository.save(new Transaction(USER, 100.0, TransactionType.KILL));
+        accountBalanceRepository.save(new AccountBalance(USER, 90, 0));
+        duringAggregation.set(() -> sut.addTransaction(
+            transactionRepository.save(new Transaction(USER, 50.0, TransactionType.RATTING))));
+
+        sut.reconcile();
+
+        // the correction is skipped instead of overwriting the increment
+        assertThat(sut.getBalance(USER)).isEqualTo(140.0);
+
+        sut.reconcile();
+
+        assertThat(sut.getBalance(USER)).isEqualTo(150.0);
+    }
+
+    @Test
+    public void keepsPayoutRequestedDuringRebuild() {
+        transactionRepository.save(new Transaction(USER, 100.0, TransactionType.KILL));
+        duringAggregation.set(() -> sut.addPending(
+            payoutRepository.save(new Payout(USER, 30.0, USER, PayoutStatus.REQUESTED, null))));
+
+        sut.reconcile();
+
+        // the balance was created by the increment, so creating it again is skipped
+        assertThat(accountBalanceRepository.findOne(USER).getPending()).isEqualTo(30.0);
+
+        sut.reconcile();
+
+        assertThat(sut.getBalance(USER)).isEqualTo(70.0);
+    }
+
+    @Test
+    public void keepsBalanceIncrementedBeforeRemoval() {
+        accountBalanceRepository.save(new AccountBalance(USER, 10, 0));
+        duringAggregation.set(() -> sut.addTransaction(
+            transactionRepository.save(new Transaction(USER, 50.0, TransactionType.KILL))));
+
+        sut.reconcile();
+
+        assertThat(sut.getBalance(USER)).isEqualTo(60.0);
+
+        sut.reconcile();
+
+        assertThat(sut.getBalance(USER)).isEqualTo(50.0);
+    }
+
+    @Test
+    public void doesNotCountWriteInFlightTwice() {
+        transactionRepository.save(new Transaction(USER, 100.0, TransactionType.KILL));
+        accountBalanceRepository.save(new AccountBalance(USER, 100, 0));
+        final boolean[] reconciled = {true};
+
+        // the ledger row is stored, the reconciliation runs, then the increment arrives
+        sut.write(Collections.singleton(USER), () -> {
+            final Transaction transaction = transactionRepository.save(
+                new Transaction(USER, 50.0, TransactionType.RATTING));
+            reconciled[0] = sut.reconcile(Collections.singleton(USER));
+            sut.addTransaction(transaction);
+            return transaction;
+        });
+
+        assertThat(reconciled[0]).isFalse();
+        assertThat(sut.getBalance(USER)).isEqualTo(150.0);
+        assertThat(accountBalanceRepository.findOne(USER).getWriters()).isEqualTo(0);
+
+        assertThat(sut.reconcile(Collections.singleton(USER))).isTrue();
+        assertThat(sut.getBalance(USER)).isEqualTo(150.0);
+    }
+
+    @Test
+    public void correctsBalanceOfAbandonedWrite() {
+        transactionRepository.save(new Transaction(USER, 100.0, TransactionType.KILL));
+        // died after writing the ledger, before the increment and the unmark
+        final AccountBalance balance = new AccountBalance(USER, 0, 0);
+        balance.setWriters(1);
+        balance.setUpdated(Instant.now().minus(1, ChronoUnit.HOURS));
+        accountBalanceRepository.save(balance);
+
+        assertThat(sut.reconcile(Collections.singleton(USER))).isTrue();
+
+        assertThat(sut.getBalance(USER)).isEqualTo(100.0);
+        assertThat(accountBalanceRepository.findOne(USER).getWriters()).isEqualTo(0);
+    }
+}
@@ -0,0 +1,70 @@
+package com.bravebucks.eve.service;
+
+import com.bravebucks.eve.domain.esi.AdmResponse;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.web.client.ResourceAccessException;
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class AdmServiceTest {
+
+    private ConditionalGetClient conditionalGetClient = mock(ConditionalGetClient.class);
+    private JobRunner jobRunner = mock(JobRunner.class);
+    private AdmService sut = new AdmService(conditionalGetClient, jobRunner);
+
+    @Before
+    public void setUp() {
+        when(jobRunner.run(anyString(), any(Runnable.class))).thenAnswer(invocation -> {
+            ((Runnable) invocation.getArguments()[1]).run();
+            return true;
+        });
+        when(conditionalGetClient.get(anyString(), eq(AdmResponse[].class)))
+            .thenReturn(new AdmResponse[]{adm(30000142, 3.5)});
+    }
+
+    @Test
+    public void missTriggersSingleDownload() {
+        assertEquals(3.5, sut.getAdm(30000142), 0.0);
+        assertEquals(5.0, sut.getAdm(30000143), 0.0);
+        assertEquals(5.0, sut.getAdm(30000143), 0.0);
+        assertEquals(5.0, sut.getAdm(30000144), 0.0);
+
+        verify(conditionalGetClient, times(1)).get(anyString(), eq(AdmResponse[].class));
+    }
+
+    @Test
+    public void updateReplacesValues() {
+        sut.init();
+        when(conditionalGetClient.get(anyString(), eq(AdmResponse[].class)))
+            .thenReturn(new AdmResponse[]{adm(30000143, 2.0)});
+        sut.update();
+
+        assertEquals(5.0, sut.getAdm(30000142), 0.0);
+        assertEquals(2.0, sut.getAdm(30000143), 0.0);
+    }
+
+    @Test
+    public void failedUpdateKeepsValues() {
+        sut.init();
+        when(conditionalGetClient.get(anyString(), eq(AdmResponse[].class)))
+            .thenThrow(new ResourceAccessException("timeout"));
+        sut.update();
+
+        assertEquals(3.5, sut.getAdm(30000142), 0.0);
+    }
+
+    private static AdmResponse adm(final int systemId, final double value) {
+        final AdmResponse adm = new AdmResponse();
+        adm.setSolarSystemId(systemId);
+        adm.setAdm(value);
+        return adm;
+    }
+}
@@ -0,0 +1,142 @@
+package com.bravebucks.eve.service;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import com.bravebucks.eve.domain.User;
+import com.bravebucks.eve.domain.esi.CharacterAffiliation;
+import com.bravebucks.eve.repository.UserRepository;
+import com.codahale.metrics.MetricRegistry;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.RestTemplate;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class AllianceParserTest {
+
+    private static final int INVALID = 777;
+
+    private UserRepository userRepository = mock(UserRepository.class);
+    private RestTemplate restTemplate = mock(RestTemplate.class);
+    private JobRunner jobRunner = mock(JobRunner.class);
+    private MetricRegistry metricRegistry = new MetricRegistry();
+    private AllianceParser sut = new AllianceParser(userRepository, mock(ConditionalGetClient.class), restTemplate,
+                                                    jobRunner, metricRegistry);
+
+    @Before
+    public void setUp() {
+        when(jobRunner.runOnOneNode(anyString(), any(Runnable.class))).thenAnswer(invocation -> {
+            ((Runnable) invocation.getArguments()[1]).run();
+            return true;
+        });
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void writesBackOnlyChangedUsers() {
+        when(userRepository.findAllByCharacterIdNotNull()).thenReturn(Arrays.asList(user("a", 1L, 99003214),
+                                                                                    user("b", 2L, 99003214),
+                                                                                    user("c", 3L, null)));
+        when(restTemplate.exchange(anyString(), eq(HttpMethod.POST), any(HttpEntity.class),
+                                   eq(CharacterAffiliation[].class)))
+            .thenReturn(ResponseEntity.ok(new CharacterAffiliation[]{affiliation(1, 99003214),
+                                                                     affiliation(2, null),
+                                                                     affiliation(3, 99001234)}));
+
+        sut.updateAlliances();
+
+        final ArgumentCaptor<Map> changed = ArgumentCaptor.forClass(Map.class);
+        verify(userRepository).updateAllianceIds(changed.capture());
+        assertEquals(2, changed.getValue().size());
+        assertTrue(changed.getValue().containsKey("b"));
+        assertNull(changed.getValue().get("b"));
+        assertEquals(99001234, changed.getValue().get("c"));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void bisectsChunkRejectedForAnInvalidId() {
+        final List<User> users = IntStream.rangeClosed(1, 1000)
+                                          .mapToObj(id -> user("u" + id, (long) id, null))
+                                          .collect(Collectors.toList());
+        when(userRepository.findAllByCharacterIdNotNull()).thenReturn(users);
+        when(restTemplate.exchange(anyString(), eq(HttpMethod.POST), any(HttpEntity.class),
+                                   eq(CharacterAffiliation[].class))).thenAnswer(invocation -> {
+            final List<Integer> ids = (List<Integer>) ((HttpEntity) invocation.getArguments()[2]).getBody();
+            if (ids.contains(INVALID)) {
+                throw new HttpClientErrorException(HttpStatus.NOT_FOUND);
+            }
+            return ResponseEntity.ok(ids.stream().map(id -> affiliation(id, 99003214))
+                                        .toArray(CharacterAffiliation[]::new));
+        });
+
+        sut.updateAlliances();
+
+        final ArgumentCaptor<Map> changed = ArgumentCaptor.forClass(Map.class);
+        verify(userRepository).updateAllianceIds(changed.capture());
+        assertEquals(999, changed.getValue().size());
+        assertFalse(changed.getValue().containsKey("u" + INVALID));
+        assertEquals(1, meter("skipped"));
+        // a rejected request per level of the bisection down to the single id, an accepted one for each sibling
+        verify(restTemplate, times(21)).exchange(anyString(), eq(HttpMethod.POST), any(HttpEntity.class),
+                                                 eq(CharacterAffiliation[].class));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void skipsWholeChunkOnServerError() {
+        when(userRepository.findAllByCharacterIdNotNull()).thenReturn(Arrays.asList(user("a", 1L, null),
+                                                                                    user("b", 2L, null)));
+        when(restTemplate.exchange(anyString(), eq(HttpMethod.POST), any(HttpEntity.class),
+                                   eq(CharacterAffiliation[].class)))
+            .thenThrow(new HttpServerErrorException(HttpStatus.BAD_GATEWAY));
+
+        sut.updateAlliances();
+
+        verify(userRepository).updateAllianceIds(Collections.emptyMap());
+        verify(restTemplate, times(1)).exchange(anyString(), eq(HttpMethod.POST), any(HttpEntity.class),
+                                                eq(CharacterAffiliation[].class));
+        assertEquals(2, meter("skipped"));
+    }
+
+    private long meter(final String name) {
+        return metricRegistry.meter(MetricRegistry.name(AllianceParser.class, name)).getCount();
+    }
+
+    private static User user(final String id, final Long characterId, final Integer allianceId) {
+        final User user = new User();
+        user.setId(id);
+        user.setCharacterId(characterId);
+        user.setAllianceId(allianceId);
+        return user;
+    }
+
+    private static CharacterAffiliation affiliation(final int characterId, final Integer allianceId) {
+        final CharacterAffiliation affiliation = new CharacterAffiliation();
+        affiliation.setCharacterId(characterId);
+        affiliation.setAllianceId(allianceId);
+        return affiliation;
+    }
+}
@@ -0,0 +1,133 @@
+package com.bravebucks.eve.service;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import com.bravebucks.eve.config.ApplicationProperties;
+import com.bravebucks.eve.domain.Appraisal;
+import com.bravebucks.eve.domain.ItemWithQuantity;
+import com.codahale.metrics.MetricRegistry;
+
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class AppraisalServiceTest {
+
+    private EvepraisalClient evepraisalClient = mock(EvepraisalClient.class);
+    private LocalAppraiser localAppraiser = mock(LocalAppraiser.class);
+    private AppraisalService sut = new AppraisalService(localAppraiser, evepraisalClient, new ApplicationProperties(),
+                                                        new MetricRegistry());
+
+    @Test
+    public void sameItemsAreAppraisedOnce() {
+        when(evepraisalClient.appraise("Tritanium 10\nPyerite 5"))
+            .thenReturn(result("a", 15.0, item("Pyerite", 35, 5), item("Tritanium", 34, 10)));
+
+        sut.appraise(request(null, "Tritanium 10\nPyerite 5"));
+        final Appraisal appraisal = request(null, "  Pyerite 5\n\nTritanium 10 ");
+        sut.appraise(appraisal);
+
+        verify(evepraisalClient, times(1)).appraise(anyString());
+        assertEquals("a", appraisal.getLink());
+        assertEquals(15.0, appraisal.getTotalBuy(), 0.0);
+        assertEquals(2, appraisal.getItems().size());
+    }
+
+    @Test
+    public void onlyAdditionalLinesAreAppraised() {
+        when(evepraisalClient.appraise("Tritanium 10"))
+            .thenReturn(result("a", 10.0, item("Tritanium", 34, 10)));
+        when(evepraisalClient.appraise("Pyerite 5\nTritanium 1"))
+            .thenReturn(result("b", 6.0, item("Pyerite", 35, 5), item("Tritanium", 34, 1)));
+
+        final Appraisal appraisal = request(null, "Tritanium 10");
+        sut.appraise(appraisal);
+        appraisal.setAdditionalRaw("Pyerite 5\nTritanium 1");
+        sut.appraise(appraisal);
+
+        verify(evepraisalClient, times(2)).appraise(anyString());
+        assertEquals("Tritanium 10\nPyerite 5\nTritanium 1", appraisal.getRaw());
+        assertEquals("b", appraisal.getLink());
+        assertEquals(16.0, appraisal.getTotalBuy(), 0.0);
+        assertEquals(2, appraisal.getItems().size());
+        assertEquals("Pyerite", appraisal.getItems().get(0).getTypeName());
+        assertEquals(11, (int) appraisal.getItems().get(1).getQuantity());
+    }
+
+    @Test
+    public void forgedTotalsAreIgnored() {
+        when(evepraisalClient.appraise("Tritanium 10"))
+            .thenReturn(result("a", 10.0, item("Tritanium", 34, 10)));
+        when(evepraisalClient.appraise("Pyerite 5"))
+            .thenReturn(result("b", 6.0, item("Pyerite", 35, 5)));
+        when(evepraisalClient.appraise("Veldspar 1\nPyerite 5"))
+            .thenReturn(result("c", 7.0, item("Pyerite", 35, 5), item("Veldspar", 1230, 1)));
+        sut.appraise(request(null, "Tritanium 10"));
+
+        // previous result cached, the forged one is replaced by it
+        final Appraisal cachedPrevious = forged("Tritanium 10", "Pyerite 5");
+        sut.appraise(cachedPrevious);
+        assertEquals(16.0, cachedPrevious.getTotalBuy(), 0.0);
+        assertEquals(2, cachedPrevious.getItems().size());
+
+        // previous raw text never appraised, the whole text is
+        final Appraisal unknownPrevious = forged("Veldspar 1", "Pyerite 5");
+        sut.appraise(unknownPrevious);
+        assertEquals(7.0, unknownPrevious.getTotalBuy(), 0.0);
+        assertEquals(2, unknownPrevious.getItems().size());
+
+        // other users get the appraised result, not the forged one
+        final Appraisal other = request(null, "Pyerite 5\nTritanium 10");
+        sut.appraise(other);
+        assertEquals(16.0, other.getTotalBuy(), 0.0);
+        verify(evepraisalClient, times(3)).appraise(anyString());
+    }
+
+    @Test
+    public void localAppraiserIsUsedOnceReady() {
+        when(localAppraiser.isReady()).thenReturn(true);
+        when(localAppraiser.appraise("Tritanium 10")).thenReturn(result(null, 50.0, item("Tritanium", 34, 10)));
+
+        final Appraisal appraisal = request(null, "Tritanium 10");
+        sut.appraise(appraisal);
+
+        verify(evepraisalClient, never()).appraise(anyString());
+        assertEquals(50.0, appraisal.getTotalBuy(), 0.0);
+    }
+
+    @Test
+    public void normalizeIgnoresOrderAndBlankLines() {
+        assertEquals(AppraisalService.normalize("b\na"), AppraisalService.normalize("\n a\r\n\nb  "));
+    }
+
+    private static Appraisal request(final String raw, final String additionalRaw) {
+        final Appraisal appraisal = new Appraisal(raw);
+        appraisal.setAdditionalRaw(additionalRaw);
+        return appraisal;
+    }
+
+    private static Appraisal forged(final String raw, final String additionalRaw) {
+        final Appraisal appraisal = request(raw, additionalRaw);
+        appraisal.setTotalBuy(1e15);
+        appraisal.setItems(Collections.singletonList(item("Tritanium", 34, 1_000_000)));
+        return appraisal;
+    }
+
+    private static Appraisal result(final String link, final double totalBuy, final ItemWithQuantity... items) {
+        final Appraisal appraisal = new Appraisal();
+        appraisal.setLink(link);
+        appraisal.setTotalBuy(totalBuy);
+        appraisal.setItems(Arrays.asList(items));
+        return appraisal;
+    }
+
+    private static ItemWithQuantity item(final String name, final int typeId, final int quantity) {
+        return new ItemWithQuantity(name, typeId, quantity);
+    }
+}
@@ -0,0 +1,78 @@
+package com.bravebucks.eve.service;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Compares {@link BountyReasonParser} to the former split based parsing on a journal page of bounty reasons.
+ * <p>
+ * Not run by the test suite. Run it with {@code ./mvnw test-compile} followed by running {@link #main} from the IDE,
+ * or with the test classpath on the command line.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BountyReasonParserBenchmark {
+
+    // the maximum number of entries on an ESI wallet journal page
+    private static final int PAGE_SIZE = 2500;
+
+    private String[] reasons;
+
+    @Setup
+    public void createReasons() {
+        final Random random = new Random(42);
+        reasons = new String[PAGE_SIZE];
+        for (int i = 0; i < PAGE_SIZE; i++) {
+            final StringBuilder reason = new StringBuilder();
+            final int types = 1 + random.nextInt(8);
+            for (int type = 0; type < types; type++) {
+                if (type > 0) {
+                    reason.append(',');
+                }
+                reason.append(23000 + random.nextInt(1000)).append(": ").append(1 + random.nextInt(12));
+            }
+            reasons[i] = reason.toString();
+        }
+    }
+
+    @Benchmark
+    public void split(final Blackhole blackhole) {
+        for (final String reason : reasons) {
+            int killCount = 0;
+            for (String killCounter : reason.split(",")) {
+                killCount += Integer.parseInt(killCounter.split(": ")[1]);
+            }
+            blackhole.consume(killCount);
+        }
+    }
+
+    @Benchmark
+    public void scan(final Blackhole blackhole) {
+        for (final String reason : reasons) {
+            blackhole.consume(BountyReasonParser.countKills(reason));
+        }
+    }
+
+    public static void main(final String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(BountyReasonParserBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -0,0 +1,24 @@
+package com.bravebucks.eve.service;
+
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+
+public class BountyReasonParserTest {
+
+    @Test
+    public void sumsAllCounts() {
+        assertEquals(1, BountyReasonParser.countKills("23295: 1"));
+        assertEquals(15, BountyReasonParser.countKills("23295: 1,23303: 2,23317: 12"));
+    }
+
+    @Test
+    public void skipsMalformedParts() {
+        assertEquals(0, BountyReasonParser.countKills(null));
+        assertEquals(0, BountyReasonParser.countKills(""));
+        assertEquals(2, BountyReasonParser.countKills("23295,23303: 2"));
+        assertEquals(2, BountyReasonParser.countKills("23295: x,23303: 2"));
+        assertEquals(2, BountyReasonParser.countKills("23295: 1: 1,23303: 2,"));
+        assertEquals(2, BountyReasonParser.countKills("23295: 1 1,23303: 2 "));
+        assertEquals(2, BountyReasonParser.countKills("23295: 99999999999,23303: 2"));
+    }
+}
@@ -0,0 +1,66 @@
+package com.bravebucks.eve.service;
+
+import com.bravebucks.eve.domain.esi.CharacterInfoResponse;
+import com.codahale.metrics.MetricRegistry;
+
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.client.RestTemplate;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class ConditionalGetClientTest {
+
+    private static final String URL = "https://esi.evetech.net/v4/characters/1/";
+
+    private RestTemplate restTemplate = mock(RestTemplate.class);
+    private ConditionalGetClient sut = new ConditionalGetClient(restTemplate, new MetricRegistry());
+
+    @Test
+    public void reusesBodyUntilExpired() {
+        final HttpHeaders headers = new HttpHeaders();
+        headers.setExpires(System.currentTimeMillis() + 60_000);
+        final CharacterInfoResponse body = new CharacterInfoResponse();
+        when(restTemplate.exchange(anyString(), eq(HttpMethod.GET), any(HttpEntity.class),
+                                   eq(CharacterInfoResponse.class)))
+            .thenReturn(new ResponseEntity<>(body, headers, HttpStatus.OK));
+
+        assertSame(body, sut.get(URL, CharacterInfoResponse.class));
+        assertSame(body, sut.get(URL, CharacterInfoResponse.class));
+
+        verify(restTemplate, times(1)).exchange(anyString(), eq(HttpMethod.GET), any(HttpEntity.class),
+                                                eq(CharacterInfoResponse.class));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void returnsCachedBodyWhenNotModified() {
+        final HttpHeaders headers = new HttpHeaders();
+        headers.setETag("\"abc\"");
+        final CharacterInfoResponse body = new CharacterInfoResponse();
+        when(restTemplate.exchange(anyString(), eq(HttpMethod.GET), any(HttpEntity.class),
+                                   eq(CharacterInfoResponse.class)))
+            .thenReturn(new ResponseEntity<>(body, headers, HttpStatus.OK),
+                        new ResponseEntity<>(HttpStatus.NOT_MODIFIED));
+
+        sut.get(URL, CharacterInfoResponse.class);
+        assertSame(body, sut.get(URL, CharacterInfoResponse.class));
+
+        final ArgumentCaptor<HttpEntity> request = ArgumentCaptor.forClass(HttpEntity.class);
+        verify(restTemplate, times(2)).exchange(anyString(), eq(HttpMethod.GET), request.capture(),
+                                                eq(CharacterInfoResponse.class));
+        assertEquals("\"abc\"", request.getValue().getHeaders().getIfNoneMatch().get(0));
+    }
+}
@@ -0,0 +1,47 @@
+package com.bravebucks.eve.service;
+
+import java.util.Collections;
+import java.util.Optional;
+
+import com.bravebucks.eve.domain.esi.SearchResponse;
+
+import org.junit.Test;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestTemplate;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class EsiSearchClientTest {
+
+    private RestTemplate restTemplate = mock(RestTemplate.class);
+    private EsiSearchClient sut = new EsiSearchClient(restTemplate);
+
+    @Test
+    public void findSolarSystemId() {
+        final SearchResponse response = new SearchResponse();
+        response.setSolarSystem(Collections.singletonList(30000142L));
+        when(restTemplate.getForObject(anyString(), eq(SearchResponse.class), eq("JITA"))).thenReturn(response);
+
+        assertEquals(Optional.of(30000142L), sut.findSolarSystemId("JITA"));
+    }
+
+    @Test
+    public void findSolarSystemId_withoutMatch() {
+        when(restTemplate.getForObject(anyString(), eq(SearchResponse.class), eq("JITTA")))
+            .thenReturn(new SearchResponse());
+
+        assertFalse(sut.findSolarSystemId("JITTA").isPresent());
+    }
+
+    @Test
+    public void findSolarSystemId_withException() {
+        when(restTemplate.getForObject(anyString(), eq(SearchResponse.class), eq("JITA")))
+            .thenThrow(new ResourceAccessException("test"));
+
+        assertFalse(sut.findSolarSystemId("JITA").isPresent());
+    }
+}
@@ -0,0 +1,112 @@
+package com.bravebucks.eve.service;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import com.bravebucks.eve.BraveBucksApp;
+import com.bravebucks.eve.domain.HighscoreEntry;
+import com.bravebucks.eve.domain.Transaction;
+import com.bravebucks.eve.domain.enumeration.TransactionType;
+import com.bravebucks.eve.repository.TransactionRepository;
+import com.bravebucks.eve.service.HighscoreService.Window;
+import com.bravebucks.eve.web.rest.EnvironmentTestConfiguration;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.entry;
+
+/**
+ * Runs the highscore aggregation against the embedded Mongo with transactions on both sides of every window start,
+ * so the rendered {@code $cond} and the {@code $amount} reference are checked as well.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(classes = BraveBucksApp.class)
+@ContextConfiguration(initializers = EnvironmentTestConfiguration.class)
+public class HighscoreServiceIntTest {
+
+    @Autowired
+    private HighscoreService highscoreService;
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @Before
+    public void setup() {
+        transactionRepository.deleteAll();
+    }
+
+    @Test
+    public void windowsIncludeTheirStart() {
+        final Instant now = Instant.parse("2018-03-20T12:00:00Z");
+        final Instant week = Instant.parse("2018-03-13T12:00:00Z");
+        final Instant month = Instant.parse("2018-02-18T12:00:00Z");
+        final Instant monthStart = Instant.parse("2018-03-01T00:00:00Z");
+        transactionRepository.save(Arrays.asList(
+            transaction("week", week, 1), transaction("beforeWeek", justBefore(week), 2),
+            transaction("monthStart", monthStart, 3), transaction("beforeMonthStart", justBefore(monthStart), 4),
+            transaction("month", month, 5), transaction("beforeMonth", justBefore(month), 6),
+            // summed per window
+            transaction("both", now.minus(1, ChronoUnit.DAYS), 10),
+            transaction("both", now.minus(15, ChronoUnit.DAYS), 20),
+            // no leaderboard for payouts
+            transaction("payout", now, TransactionType.PAYOUT, 100)));
+
+        highscoreService.refresh(now);
+
+        assertThat(amounts(TransactionType.KILL, Window.LAST_7_DAYS))
+            .containsOnly(entry("week", 1.0), entry("both", 10.0));
+        assertThat(amounts(TransactionType.KILL, Window.MONTH_TO_DATE))
+            .containsOnly(entry("week", 1.0), entry("beforeWeek", 2.0), entry("monthStart", 3.0),
+                          entry("both", 30.0));
+        assertThat(amounts(TransactionType.KILL, Window.LAST_30_DAYS))
+            .containsOnly(entry("week", 1.0), entry("beforeWeek", 2.0), entry("monthStart", 3.0),
+                          entry("beforeMonthStart", 4.0), entry("month", 5.0), entry("both", 30.0));
+    }
+
+    @Test
+    public void monthToDateCanReachBeyondTheLast30Days() {
+        final Instant now = Instant.parse("2018-03-31T12:00:00Z");
+        final Instant monthStart = Instant.parse("2018-03-01T00:00:00Z");
+        transactionRepository.save(Arrays.asList(
+            transaction("monthStart", monthStart, TransactionType.RATTING, 1),
+            transaction("beforeMonthStart", justBefore(monthStart), TransactionType.RATTING, 2),
+            transaction("early", Instant.parse("2018-03-01T06:00:00Z"), TransactionType.RATTING, 3),
+            transaction("late", Instant.parse("2018-03-01T12:00:00Z"), TransactionType.RATTING, 4)));
+
+        highscoreService.refresh(now);
+
+        assertThat(amounts(TransactionType.RATTING, Window.MONTH_TO_DATE))
+            .containsOnly(entry("monthStart", 1.0), entry("early", 3.0), entry("late", 4.0));
+        assertThat(amounts(TransactionType.RATTING, Window.LAST_30_DAYS)).containsOnly(entry("late", 4.0));
+        assertThat(amounts(TransactionType.RATTING, Window.LAST_7_DAYS)).isEmpty();
+        assertThat(amounts(TransactionType.KILL, Window.MONTH_TO_DATE)).isEmpty();
+    }
+
+    private Map<String, Double> amounts(final TransactionType type, final Window window) {
+        return highscoreService.getLeaderboard(type, window).getEntries().stream()
+                               .collect(Collectors.toMap(HighscoreEntry::getName, HighscoreEntry::getAmount));
+    }
+
+    private static Instant justBefore(final Instant instant) {
+        return instant.minusMillis(1);
+    }
+
+    private static Transaction transaction(final String user, final Instant instant, final double amount) {
+        return transaction(user, instant, TransactionType.KILL, amount);
+    }
+
+    private static Transaction transaction(final String user, final Instant instant, final TransactionType type,
+                                           final double amount) {
+        return new Transaction(user, amount, type).instant(instant);
+    }
+}
@@ -0,0 +1,76 @@
+package com.bravebucks.eve.service;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.bravebucks.eve.domain.HighscoreEntry;
+import com.bravebucks.eve.domain.enumeration.TransactionType;
+import com.bravebucks.eve.service.HighscoreService.Leaderboard;
+import com.bravebucks.eve.service.HighscoreService.Window;
+import com.mongodb.BasicDBObject;
+import com.mongodb.DBObject;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationResults;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class HighscoreServiceTest {
+
+    private MongoTemplate mongoTemplate = mock(MongoTemplate.class);
+    private HighscoreService sut = new HighscoreService(mongoTemplate, mock(JobRunner.class));
+    private List<DBObject> rows = new ArrayList<>();
+
+    @Before
+    public void setUp() {
+        when(mongoTemplate.aggregate(any(Aggregation.class), eq("transaction"), eq(DBObject.class)))
+            .thenAnswer(invocation -> new AggregationResults<>(new ArrayList<>(rows), new BasicDBObject()));
+    }
+
+    @Test
+    public void ranksEveryWindowSeparately() {
+        rows.add(row("alice", TransactionType.KILL, 10, 50, 20));
+        rows.add(row("bob", TransactionType.KILL, 0, 60, 10));
+        rows.add(row("carol", TransactionType.RATTING, 5, 5, 5));
+
+        sut.refresh(Instant.parse("2018-03-10T12:00:00Z"));
+
+        final List<HighscoreEntry> week = sut.getLeaderboard(TransactionType.KILL, Window.LAST_7_DAYS).getEntries();
+        assertEquals(1, week.size());
+        assertEquals("alice", week.get(0).getName());
+        final List<HighscoreEntry> month = sut.getLeaderboard(TransactionType.KILL, Window.LAST_30_DAYS).getEntries();
+        assertEquals("bob", month.get(0).getName());
+        assertEquals("alice", month.get(1).getName());
+        assertEquals(1, sut.getLeaderboard(TransactionType.RATTING, Window.MONTH_TO_DATE).getEntries().size());
+        assertNull(sut.getLeaderboard(TransactionType.PAYOUT, Window.LAST_30_DAYS));
+    }
+
+    @Test
+    public void etagChangesWithContent() {
+        rows.add(row("alice", TransactionType.KILL, 10, 50, 20));
+        sut.refresh(Instant.now());
+        final Leaderboard before = sut.getLeaderboard(TransactionType.KILL, Window.LAST_30_DAYS);
+
+        sut.refresh(Instant.now());
+        assertEquals(before.getEtag(), sut.getLeaderboard(TransactionType.KILL, Window.LAST_30_DAYS).getEtag());
+
+        rows.add(row("bob", TransactionType.KILL, 0, 60, 10));
+        sut.refresh(Instant.now());
+        assertNotEquals(before.getEtag(), sut.getLeaderboard(TransactionType.KILL, Window.LAST_30_DAYS).getEtag());
+    }
+
+    private static DBObject row(final String user, final TransactionType type, final double week,
+                                final double month, final double monthToDate) {
+        return new BasicDBObject("_id", new BasicDBObject("user", user).append("type", type.name()))
+            .append("week", week).append("month", month).append("monthToDate", monthToDate);
+    }
+}
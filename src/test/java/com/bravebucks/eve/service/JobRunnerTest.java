@@ -0,0 +1,41 @@
+package com.bravebucks.eve.service;
+
+import com.codahale.metrics.MetricRegistry;
+
+import org.junit.Test;
+import org.springframework.core.task.SyncTaskExecutor;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class JobRunnerTest {
+
+    private SchedulerLock schedulerLock = mock(SchedulerLock.class);
+    private MetricRegistry metricRegistry = new MetricRegistry();
+    private JobRunner sut = new JobRunner(schedulerLock, metricRegistry, new SyncTaskExecutor());
+
+    @Test
+    public void skipsOverlappingRun() {
+        final boolean[] nestedRan = {true};
+
+        assertTrue(sut.run("job", () -> nestedRan[0] = sut.run("job", () -> { })));
+
+        assertFalse(nestedRan[0]);
+        assertEquals(1, metricRegistry.meter("com.bravebucks.eve.service.JobRunner.job.skipped").getCount());
+        assertEquals(1, metricRegistry.timer("com.bravebucks.eve.service.JobRunner.job.duration").getCount());
+    }
+
+    @Test
+    public void countsRunOnOtherNodeAsSkipped() {
+        when(schedulerLock.runLocked(anyString(), any(Runnable.class))).thenReturn(false);
+
+        assertFalse(sut.runOnOneNode("job", () -> { }));
+
+        assertEquals(1, metricRegistry.meter("com.bravebucks.eve.service.JobRunner.job.skipped").getCount());
+        assertEquals(0, metricRegistry.timer("com.bravebucks.eve.service.JobRunner.job.duration").getCount());
+    }
+}
@@ -0,0 +1,105 @@
+package com.bravebucks.eve.service;
+
+import com.bravebucks.eve.config.ApplicationProperties;
+import com.bravebucks.eve.domain.Appraisal;
+import com.bravebucks.eve.domain.ItemWithQuantity;
+import com.codahale.metrics.MetricRegistry;
+
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class LocalAppraiserTest {
+
+    private static final MarketPrices PRICES = MarketPrices.builder()
+                                                           .order(34, true, 4.5, 100).order(34, true, 5.0, 100)
+                                                           .order(34, false, 6.0, 100).order(35, true, 10.0, 10)
+                                                           .order(263, false, 150.0, 10).order(3001, true, 1.0, 1)
+                                                           .name(34, "Tritanium").name(35, "Pyerite")
+                                                           .name(263, "Cap Booster 800").name(999, "Untraded")
+                                                           .build();
+
+    private JobRunner jobRunner = mock(JobRunner.class);
+    private MarketPriceService marketPriceService = new MarketPriceService(previous -> PRICES, jobRunner,
+                                                                           new ApplicationProperties(),
+                                                                           new MetricRegistry());
+    private LocalAppraiser sut = new LocalAppraiser(marketPriceService);
+
+    @Before
+    public void setUp() {
+        when(jobRunner.run(anyString(), any(Runnable.class))).thenAnswer(invocation -> {
+            ((Runnable) invocation.getArguments()[1]).run();
+            return true;
+        });
+    }
+
+    @Test
+    public void readyOnceLoaded() {
+        assertFalse(sut.isReady());
+        marketPriceService.update();
+        assertTrue(sut.isReady());
+    }
+
+    @Test
+    public void downloadsNothingWhenDisabled() {
+        final ApplicationProperties properties = new ApplicationProperties();
+        properties.getMarketPrices().setEnabled(false);
+        final MarketPriceService disabled = new MarketPriceService(previous -> PRICES, jobRunner, properties,
+                                                                   new MetricRegistry());
+
+        disabled.init();
+        disabled.update();
+
+        assertFalse(disabled.isLoaded());
+        verify(jobRunner, never()).trigger(any(Runnable.class));
+    }
+
+    @Test
+    public void appraisesAtJitaBuy() {
+        marketPriceService.update();
+
+        final Appraisal appraisal = sut.appraise("Tritanium\t1,000\tMineral\n10 x pyerite\nunknown stuff\n"
+                                                 + "Tritanium x500\nCap Booster 800");
+
+        assertNull(appraisal.getLink());
+        assertEquals(1500 * 5.0 + 10 * 10.0, appraisal.getTotalBuy(), 0.0);
+        assertEquals(3, appraisal.getItems().size());
+        assertEquals("Cap Booster 800", appraisal.getItems().get(0).getTypeName());
+        assertEquals(1, (int) appraisal.getItems().get(0).getQuantity());
+        assertEquals("Pyerite", appraisal.getItems().get(1).getTypeName());
+        assertEquals(1500, (int) appraisal.getItems().get(2).getQuantity());
+    }
+
+    @Test
+    public void parsesClientFormats() {
+        assertItem(34, 1, LocalAppraiser.parseLine("  tritanium ", PRICES));
+        assertItem(34, 1, LocalAppraiser.parseLine("Tritanium\t\tMineral", PRICES));
+        assertItem(34, 1200, LocalAppraiser.parseLine("Tritanium 1.200", PRICES));
+        assertItem(34, 3, LocalAppraiser.parseLine("3x Tritanium", PRICES));
+        assertItem(263, 20, LocalAppraiser.parseLine("Cap Booster 800 20", PRICES));
+        assertItem(263, 1, LocalAppraiser.parseLine("Cap Booster 800, Pyerite", PRICES));
+        assertNull(LocalAppraiser.parseLine("[Rifter, Test]", PRICES));
+        assertNull(LocalAppraiser.parseLine("Untraded", PRICES));
+    }
+
+    @Test
+    public void parseQuantityRejectsOverflow() {
+        assertEquals(1000000, LocalAppraiser.parseQuantity("1'000'000"));
+        assertEquals(-1, LocalAppraiser.parseQuantity("99999999999"));
+        assertEquals(-1, LocalAppraiser.parseQuantity("0"));
+    }
+
+    private static void assertItem(final int typeId, final int quantity, final ItemWithQuantity item) {
+        assertEquals(typeId, (int) item.getTypeID());
+        assertEquals(quantity, (int) item.getQuantity());
+    }
+}
@@ -0,0 +1,37 @@
+package com.bravebucks.eve.service;
+
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+
+public class MarketPricesTest {
+
+    @Test
+    public void buyIsWeightedOverTopFivePercentOfVolume() {
+        final MarketPrices prices = MarketPrices.builder()
+                                                .order(34, true, 4.0, 900).order(34, true, 5.0, 10)
+                                                .order(34, true, 4.5, 90).order(34, false, 6.0, 50)
+                                                .name(34, "Tritanium")
+                                                .build();
+
+        // 50 of 1000 units: 10 at 5.0 and 40 at 4.5
+        assertEquals((10 * 5.0 + 40 * 4.5) / 50, prices.getBuy(34), 1e-9);
+        assertEquals(6.0, prices.getSell(34), 0.0);
+    }
+
+    @Test
+    public void singleOutlierDoesNotSetBuy() {
+        final MarketPrices prices = MarketPrices.builder()
+                                                .order(34, true, 1000.0, 1).order(34, true, 5.0, 999)
+                                                .name(34, "Tritanium")
+                                                .build();
+
+        assertEquals((1000.0 + 49 * 5.0) / 50, prices.getBuy(34), 1e-9);
+    }
+
+    @Test
+    public void buyFallsBackToHighestPriceWithoutVolume() {
+        assertEquals(5.0, MarketPrices.Builder.topPercentile(new double[] {4.0, 0, 5.0, 0}), 0.0);
+        assertEquals(0.0, MarketPrices.builder().name(34, "Tritanium").order(34, false, 6.0, 1).build().getBuy(34),
+                     0.0);
+    }
+}
@@ -0,0 +1,111 @@
+package com.bravebucks.eve.service;
+
+import java.util.Collections;
+
+import com.bravebucks.eve.domain.SolarSystem;
+import com.bravebucks.eve.domain.User;
+import com.bravebucks.eve.repository.SolarSystemRepository;
+import com.bravebucks.eve.repository.UserRepository;
+import com.mongodb.BasicDBObject;
+
+import org.bson.types.ObjectId;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.data.mongodb.core.mapping.event.AfterDeleteEvent;
+import org.springframework.data.mongodb.core.mapping.event.AfterSaveEvent;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class MembershipIndexTest {
+
+    private static final String SYSTEM_DOCUMENT_ID = new ObjectId().toString();
+
+    private UserRepository userRepository = mock(UserRepository.class);
+    private SolarSystemRepository solarSystemRepository = mock(SolarSystemRepository.class);
+    private JobRunner jobRunner = mock(JobRunner.class);
+    private MembershipIndex sut = new MembershipIndex(userRepository, solarSystemRepository, jobRunner);
+
+    @Before
+    public void setUp() {
+        when(jobRunner.run(anyString(), any(Runnable.class))).thenAnswer(invocation -> {
+            ((Runnable) invocation.getArguments()[1]).run();
+            return true;
+        });
+        when(userRepository.findAllByCharacterIdNotNull()).thenReturn(Collections.singletonList(user("a", 1L)));
+        when(solarSystemRepository.findAllByTrackPvp(true)).thenReturn(Collections.singletonList(system(30000142L, true)));
+        sut.rebuild();
+    }
+
+    @Test
+    public void rebuildLoadsCharactersAndSystems() {
+        assertTrue(sut.isCharacter(1));
+        assertFalse(sut.isCharacter(2));
+        assertTrue(sut.isPvpSystem(30000142));
+        assertFalse(sut.isPvpSystem(30000143));
+    }
+
+    @Test
+    public void savedUserIsAdded() {
+        sut.onAfterSave(new AfterSaveEvent<>(user("b", 2L), null, "jhi_user"));
+
+        assertTrue(sut.isCharacter(1));
+        assertTrue(sut.isCharacter(2));
+    }
+
+    @Test
+    public void previousCharacterOfSavedUserIsRemoved() {
+        sut.onAfterSave(new AfterSaveEvent<>(user("a", 2L), null, "jhi_user"));
+
+        assertFalse(sut.isCharacter(1));
+        assertTrue(sut.isCharacter(2));
+
+        sut.onAfterSave(new AfterSaveEvent<>(user("a", null), null, "jhi_user"));
+
+        assertFalse(sut.isCharacter(2));
+    }
+
+    @Test
+    public void characterSharedWithAnotherUserIsKept() {
+        sut.onAfterSave(new AfterSaveEvent<>(user("b", 1L), null, "jhi_user"));
+        sut.onAfterSave(new AfterSaveEvent<>(user("a", 2L), null, "jhi_user"));
+
+        assertTrue(sut.isCharacter(1));
+        assertTrue(sut.isCharacter(2));
+    }
+
+    @Test
+    public void untrackedSystemIsRemoved() {
+        sut.onAfterSave(new AfterSaveEvent<>(system(30000142L, false), null, "solar_system"));
+
+        assertFalse(sut.isPvpSystem(30000142));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void deletedSystemIsRemoved() {
+        final BasicDBObject query = new BasicDBObject("_id", new ObjectId(SYSTEM_DOCUMENT_ID));
+        final Class<Object> type = (Class) SolarSystem.class;
+        sut.onAfterDelete(new AfterDeleteEvent<>(query, type, "solar_system"));
+
+        assertFalse(sut.isPvpSystem(30000142));
+    }
+
+    private static User user(final String id, final Long characterId) {
+        final User user = new User();
+        user.setId(id);
+        user.setCharacterId(characterId);
+        return user;
+    }
+
+    private static SolarSystem system(final long systemId, final boolean trackPvp) {
+        final SolarSystem system = new SolarSystem();
+        system.setId(SYSTEM_DOCUMENT_ID);
+        system.setSystemId(systemId);
+        system.setTrackPvp(trackPvp);
+        return system;
+    }
+}
@@ -1,24 +1,41 @@
 package com.bravebucks.eve.service;
 
-import java.time.Instant;
 import java.time.LocalDate;
 import java.time.ZoneOffset;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.List;
+import java.util.function.Supplier;
 
+import com.bravebucks.eve.config.ApplicationProperties;
 import com.bravebucks.eve.domain.Donation;
+import com.bravebucks.eve.domain.EveCharacter;
+import com.bravebucks.eve.domain.RattingEntry;
+import com.bravebucks.eve.domain.Transaction;
 import com.bravebucks.eve.domain.User;
 import com.bravebucks.eve.repository.CharacterRepository;
-import com.bravebucks.eve.repository.DonationRepository;
 import com.bravebucks.eve.repository.RattingEntryRepository;
 import com.bravebucks.eve.repository.UserRepository;
 import com.bravebucks.eve.domain.Killmail;
 import com.bravebucks.eve.repository.KillmailRepository;
 import com.bravebucks.eve.repository.TransactionRepository;
+import com.carrotsearch.hppc.IntHashSet;
+import com.carrotsearch.hppc.IntLongHashMap;
+import com.carrotsearch.hppc.ObjectLongHashMap;
 
+import org.junit.Before;
 import org.junit.Test;
+import org.mockito.ArgumentCaptor;
 import static org.junit.Assert.assertEquals;
-import static org.mockito.Matchers.anyList;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.anyCollectionOf;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.anyListOf;
+import static org.mockito.Matchers.anyString;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.mockito.Mockito.any;
@@ -27,35 +44,152 @@ public class PayoutCalculatorTest {
 
     private KillmailRepository killmailRepo = mock(KillmailRepository.class);
     private UserRepository userRepo = mock(UserRepository.class);
-    private DonationRepository donationRepo = mock(DonationRepository.class);
     private TransactionRepository transactionRepo = mock(TransactionRepository.class);
     private RattingEntryRepository rattingEntryRepository = mock(RattingEntryRepository.class);
     private CharacterRepository characterRepository = mock(CharacterRepository.class);
+    private AccountBalanceService accountBalanceService = mock(AccountBalanceService.class);
+    private HighscoreService highscoreService = mock(HighscoreService.class);
+    private JobRunner jobRunner = mock(JobRunner.class);
     private PayoutCalculator sut = new PayoutCalculator(killmailRepo, userRepo, transactionRepo,
-                                                        rattingEntryRepository, characterRepository, null);
+                                                        rattingEntryRepository, characterRepository,
+                                                        accountBalanceService, highscoreService, jobRunner,
+                                                        new ApplicationProperties(), null);
 
-    @Test
-    public void calculatePayouts() {
-        User user = new User();
+    @SuppressWarnings("unchecked")
+    private ArgumentCaptor<List<Transaction>> transactions = ArgumentCaptor.forClass((Class) List.class);
+
+    @Before
+    @SuppressWarnings("unchecked")
+    public void setUp() {
+        final User user = new User();
         user.setCharacterId(1L);
         user.setLogin("test");
-        when(userRepo.findAll()).thenReturn(Collections.singletonList(user));
-        final Killmail pendingKillmail = new Killmail();
-        pendingKillmail.setPoints(1L);
-        pendingKillmail.setAttackerIds(Collections.singletonList(user.getCharacterId().intValue()));
-        when(killmailRepo.findPending()).thenReturn(Collections.singletonList(pendingKillmail));
-        when(transactionRepo.save(anyList())).thenReturn(null);
-        when(killmailRepo.save(any(Killmail.class))).thenReturn(null);
-        LocalDate now = LocalDate.now();
-        final Donation donation = new Donation();
-        donation.setAmount(1.0);
-        donation.setCreated(Instant.now());
-        when(donationRepo.findByMonth(now.getYear() + "-" + now.getMonthValue())).thenReturn(Collections.singletonList(donation));
+        when(userRepo.findAllByCharacterIdNotNullAndAllianceId(anyInt())).thenReturn(Collections.singletonList(user));
+        when(jobRunner.runOnOneNode(anyString(), any(Runnable.class))).thenAnswer(invocation -> {
+            ((Runnable) invocation.getArguments()[1]).run();
+            return true;
+        });
+        when(jobRunner.holdsLease(anyString())).thenReturn(true);
+        when(accountBalanceService.write(anyCollectionOf(String.class), any(Supplier.class)))
+            .thenAnswer(invocation -> ((Supplier<?>) invocation.getArguments()[1]).get());
+    }
+
+    @Test
+    public void calculatePayouts() {
+        when(killmailRepo.claimPending(anyString())).thenReturn(Collections.singletonList(killmail()));
+
+        sut.calculatePayouts();
+
+        verify(transactionRepo).insertIgnoringDuplicates(transactions.capture(), anyInt());
+        assertEquals(1, transactions.getValue().size());
+        verify(accountBalanceService).addTransactions(transactions.getValue());
+        verify(accountBalanceService, never()).reconcile(anyCollectionOf(String.class));
+        verify(killmailRepo).completePayoutRun(anyString());
+        verify(rattingEntryRepository).completePayoutRun(anyString());
+    }
+
+    @Test
+    public void redoesUnfinishedRun() {
+        when(killmailRepo.findUnfinishedPayoutRun()).thenReturn("crashed");
+        when(killmailRepo.findClaimed("crashed")).thenReturn(Collections.singletonList(killmail()));
+        when(accountBalanceService.reconcile(anyCollectionOf(String.class))).thenReturn(true);
 
         sut.calculatePayouts();
 
-        verify(killmailRepo).save(anyList());
-        verify(transactionRepo).save(anyList());
+        verify(transactionRepo, times(2)).insertIgnoringDuplicates(transactions.capture(), anyInt());
+        final Transaction redone = transactions.getAllValues().get(0).get(0);
+        assertEquals("crashed-KILL-test", redone.getId());
+        assertEquals("crashed", redone.getPayoutRun());
+        verify(accountBalanceService).reconcile(Collections.singleton("test"));
+        verify(accountBalanceService, never()).reconcile();
+        verify(killmailRepo).completePayoutRun("crashed");
+        verify(rattingEntryRepository).completePayoutRun("crashed");
+        verify(killmailRepo).claimPending(anyString());
+    }
+
+    @Test
+    public void leavesRunUnfinishedIfReconciliationIsSkipped() {
+        when(killmailRepo.findUnfinishedPayoutRun()).thenReturn("crashed");
+        when(killmailRepo.findClaimed("crashed")).thenReturn(Collections.singletonList(killmail()));
+        when(accountBalanceService.reconcile(anyCollectionOf(String.class))).thenReturn(false);
+
+        try {
+            sut.calculatePayouts();
+            fail("the redo must fail while the balances cannot be reconciled");
+        } catch (final IllegalStateException expected) {
+            // redone by the next calculation
+        }
+
+        verify(killmailRepo, never()).completePayoutRun(anyString());
+        verify(killmailRepo, never()).claimPending(anyString());
+    }
+
+    private static Killmail killmail() {
+        final Killmail killmail = new Killmail();
+        killmail.setPoints(1L);
+        killmail.setAttackerIds(Collections.singletonList(1));
+        return killmail;
+    }
+
+    @Test
+    public void stopsBeforeTheNextWriteWhenTheLeaseIsLost() {
+        when(killmailRepo.claimPending(anyString())).thenReturn(Collections.singletonList(killmail()));
+        // lost while the transactions are inserted
+        when(jobRunner.holdsLease(anyString())).thenReturn(true, false);
+
+        try {
+            sut.calculatePayouts();
+            fail("the run must stop without its lease");
+        } catch (final IllegalStateException expected) {
+            // redone by the node holding the lease
+        }
+
+        verify(transactionRepo).insertIgnoringDuplicates(anyListOf(Transaction.class), anyInt());
+        verify(accountBalanceService, never()).addTransactions(anyCollectionOf(Transaction.class));
+        verify(killmailRepo, never()).completePayoutRun(anyString());
+        verify(rattingEntryRepository, never()).completePayoutRun(anyString());
+    }
+
+    @Test
+    public void aggregateKillmailPoints() {
+        final Killmail first = new Killmail();
+        first.setPoints(10L);
+        first.setAttackerIds(Arrays.asList(1, 2, 3));
+        first.setFinalBlowAttackerId(1);
+        final Killmail second = new Killmail();
+        second.setPoints(5L);
+        second.setAttackerIds(Collections.singletonList(2));
+        second.setFinalBlowAttackerId(2);
+
+        final IntLongHashMap points = sut.aggregateKillmailPoints(Arrays.asList(first, second),
+                                                                  IntHashSet.from(1, 2));
+
+        assertEquals(16L, points.get(1));
+        assertEquals(17L, points.get(2));
+        assertFalse(points.containsKey(3));
+    }
+
+    @Test
+    public void aggregateRattingPoints() {
+        final List<EveCharacter> characters = Arrays.asList(new EveCharacter(1, "main", "token", "user"),
+                                                            new EveCharacter(2, "alt", null, "user"));
+        final RattingEntry main = new RattingEntry();
+        main.setCharacterId(1);
+        main.setKillCount(10);
+        main.setAdm(3.0);
+        final RattingEntry alt = new RattingEntry();
+        alt.setCharacterId(2);
+        alt.setKillCount(3);
+        alt.setAdm(1.0);
+        final RattingEntry unknown = new RattingEntry();
+        unknown.setCharacterId(3);
+        unknown.setKillCount(100);
+        unknown.setAdm(1.0);
+
+        final ObjectLongHashMap<String> points = sut.aggregateRattingPoints(characters, Arrays.asList(main, alt, unknown));
+
+        assertEquals(16L, points.get("user"));
+        assertEquals(1, points.size());
     }
 
     @Test
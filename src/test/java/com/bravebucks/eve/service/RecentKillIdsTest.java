@@ -0,0 +1,49 @@
+package com.bravebucks.eve.service;
+
+import java.util.Arrays;
+
+import com.bravebucks.eve.config.ApplicationProperties;
+import com.bravebucks.eve.repository.KillmailRepository;
+
+import org.junit.Test;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class RecentKillIdsTest {
+
+    private KillmailRepository killmailRepository = mock(KillmailRepository.class);
+
+    @Test
+    public void evictsOldestIdWhenFull() {
+        final RecentKillIds sut = create(2);
+
+        sut.add(1L);
+        sut.add(2L);
+        sut.add(3L);
+
+        assertFalse(sut.contains(1L));
+        assertTrue(sut.contains(2L));
+        assertTrue(sut.contains(3L));
+    }
+
+    @Test
+    public void warmKeepsNewestIds() {
+        when(killmailRepository.findNewestKillIds(2)).thenReturn(Arrays.asList(30L, 20L));
+        final RecentKillIds sut = create(2);
+
+        sut.warm();
+        sut.add(40L);
+
+        assertFalse(sut.contains(20L));
+        assertTrue(sut.contains(30L));
+        assertTrue(sut.contains(40L));
+    }
+
+    private RecentKillIds create(final int capacity) {
+        final ApplicationProperties properties = new ApplicationProperties();
+        properties.getIngestion().setRecentKillIds(capacity);
+        return new RecentKillIds(killmailRepository, properties);
+    }
+}
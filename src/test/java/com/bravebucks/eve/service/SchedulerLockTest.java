@@ -0,0 +1,77 @@
+package com.bravebucks.eve.service;
+
+import com.bravebucks.eve.domain.JobLock;
+
+import org.junit.Test;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class SchedulerLockTest {
+
+    private MongoTemplate mongoTemplate = mock(MongoTemplate.class);
+    private SchedulerLock sut = new SchedulerLock(mongoTemplate);
+
+    @Test
+    public void runsTaskWhenLeaseIsAcquired() {
+        when(mongoTemplate.findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class),
+                                         eq(JobLock.class))).thenReturn(new JobLock());
+        final boolean[] ran = {false};
+
+        assertTrue(sut.runLocked("job", () -> ran[0] = true));
+        assertTrue(ran[0]);
+        verify(mongoTemplate).updateFirst(any(Query.class), any(Update.class), eq(JobLock.class));
+    }
+
+    @Test
+    public void lostLeaseStaysLostForTheRun() {
+        when(mongoTemplate.findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class),
+                                         eq(JobLock.class))).thenReturn(new JobLock(), null, new JobLock());
+
+        assertTrue(sut.runLocked("job", () -> {
+            assertTrue(sut.isHeld("job"));
+            sut.renew("job");
+            assertFalse(sut.isHeld("job"));
+            // free again, but another node may have run the job in between
+            sut.renew("job");
+            assertFalse(sut.isHeld("job"));
+        }));
+        assertFalse(sut.isHeld("job"));
+        verify(mongoTemplate, never()).updateFirst(any(Query.class), any(Update.class), eq(JobLock.class));
+    }
+
+    @Test
+    public void failingHeartbeatLosesTheLease() {
+        when(mongoTemplate.findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class),
+                                         eq(JobLock.class)))
+            .thenReturn(new JobLock())
+            .thenThrow(new DataAccessResourceFailureException("timeout"));
+
+        sut.runLocked("job", () -> {
+            sut.renew("job");
+            assertFalse(sut.isHeld("job"));
+        });
+    }
+
+    @Test
+    public void skipsTaskWhenLeaseIsHeldElsewhere() {
+        when(mongoTemplate.findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class),
+                                         eq(JobLock.class))).thenThrow(new DuplicateKeyException("held"));
+
+        assertFalse(sut.runLocked("job", () -> {
+            throw new IllegalStateException("must not run");
+        }));
+        assertFalse(sut.lease("job").isHeld());
+    }
+}
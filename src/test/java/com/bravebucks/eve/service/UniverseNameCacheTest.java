@@ -0,0 +1,159 @@
+package com.bravebucks.eve.service;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import com.bravebucks.eve.config.ApplicationProperties;
+import com.bravebucks.eve.domain.CachedUniverseName;
+import com.bravebucks.eve.repository.UniverseNameRepository;
+import com.codahale.metrics.MetricRegistry;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.client.HttpClientErrorException;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyListOf;
+import static org.mockito.Matchers.anyMapOf;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class UniverseNameCacheTest {
+
+    private UniverseNamesClient namesClient = mock(UniverseNamesClient.class);
+    private UniverseNameRepository universeNameRepository = mock(UniverseNameRepository.class);
+    private ApplicationProperties applicationProperties = new ApplicationProperties();
+    private MetricRegistry metricRegistry = new MetricRegistry();
+    private List<CachedUniverseName> stored = new ArrayList<>();
+    // ids whose ESI chunk fails
+    private List<Integer> failing = new ArrayList<>();
+
+    @Before
+    @SuppressWarnings("unchecked")
+    public void setUp() {
+        when(universeNameRepository.findAll(any(Iterable.class))).thenAnswer(invocation -> {
+            final List<Integer> ids = new ArrayList<>();
+            ((Iterable<Integer>) invocation.getArguments()[0]).forEach(ids::add);
+            return stored.stream().filter(name -> ids.contains(name.getId())).collect(Collectors.toList());
+        });
+        doAnswer(invocation -> {
+            final List<Integer> ids = (List<Integer>) invocation.getArguments()[0];
+            if (ids.stream().anyMatch(failing::contains)) {
+                throw new HttpClientErrorException(HttpStatus.NOT_FOUND);
+            }
+            ids.forEach(id -> ((Map<Integer, String>) invocation.getArguments()[1]).put(id, "name" + id));
+            return null;
+        }).when(namesClient).addNames(anyListOf(Integer.class), anyMapOf(Integer.class, String.class));
+    }
+
+    @Test
+    public void memoryHitSkipsStoreAndEsi() {
+        final UniverseNameCache sut = cache();
+
+        assertEquals("name1", sut.get(1));
+        assertEquals("name1", sut.get(1));
+
+        verify(universeNameRepository, times(1)).findAll(any(Iterable.class));
+        verify(namesClient, times(1)).addNames(anyListOf(Integer.class), anyMapOf(Integer.class, String.class));
+        assertEquals(1, meter("hits"));
+    }
+
+    @Test
+    public void expiredEntryFallsBackToStore() {
+        applicationProperties.getNames().setTtl(0);
+        final UniverseNameCache sut = cache();
+        sut.get(1);
+        stored.add(new CachedUniverseName(1, "stored", Instant.now()));
+
+        assertEquals("stored", sut.get(1));
+
+        verify(namesClient, times(1)).addNames(anyListOf(Integer.class), anyMapOf(Integer.class, String.class));
+        assertEquals(1, meter("store-hits"));
+    }
+
+    @Test
+    public void storeServesFreshNamesOnly() {
+        applicationProperties.getNames().setStoreTtl(3600);
+        stored.add(new CachedUniverseName(1, "fresh", Instant.now()));
+        stored.add(new CachedUniverseName(2, "stale", Instant.now().minus(2, ChronoUnit.HOURS)));
+        final UniverseNameCache sut = cache();
+
+        final Map<Integer, String> names = sut.get(Arrays.asList(1, 2));
+
+        assertEquals("fresh", names.get(1));
+        assertEquals("name2", names.get(2));
+        verify(namesClient).addNames(Collections.singletonList(2), Collections.singletonMap(2, "name2"));
+    }
+
+    @Test
+    public void evictsLeastRecentlyUsedAtMaxSize() {
+        applicationProperties.getNames().setMaxSize(2);
+        final UniverseNameCache sut = cache();
+
+        sut.get(1);
+        sut.get(2);
+        sut.get(1);
+        sut.get(3);
+
+        assertEquals(2, sut.size());
+        assertEquals(1, meter("evictions"));
+        sut.get(1);
+        verify(namesClient, times(3)).addNames(anyListOf(Integer.class), anyMapOf(Integer.class, String.class));
+        sut.get(2);
+        verify(namesClient, times(4)).addNames(anyListOf(Integer.class), anyMapOf(Integer.class, String.class));
+    }
+
+    @Test
+    public void failingChunkLeavesOtherChunksResolved() {
+        failing.add(0);
+        final List<Integer> ids = IntStream.range(0, 1500).boxed().collect(Collectors.toList());
+        final UniverseNameCache sut = cache();
+
+        final Map<Integer, String> names = sut.get(ids);
+
+        assertEquals(500, names.size());
+        assertNull(names.get(0));
+        assertEquals("name1000", names.get(1000));
+        assertEquals(1000, meter("unresolved"));
+
+        failing.clear();
+        assertEquals("name0", sut.get(0));
+        assertEquals(1500, sut.get(ids).size());
+    }
+
+    @Test
+    public void preloadsFreshNames() {
+        stored.add(new CachedUniverseName(1, "stored", Instant.now()));
+        when(universeNameRepository.findAll(any(Pageable.class)))
+            .thenReturn(new PageImpl<>(stored));
+        final UniverseNameCache sut = cache();
+
+        sut.preload();
+
+        assertEquals("stored", sut.get(1));
+        verify(universeNameRepository, never()).findAll(any(Iterable.class));
+    }
+
+    private UniverseNameCache cache() {
+        return new UniverseNameCache(namesClient, universeNameRepository, applicationProperties, metricRegistry);
+    }
+
+    private long meter(final String name) {
+        return metricRegistry.meter(MetricRegistry.name(UniverseNameCache.class, name)).getCount();
+    }
+}
@@ -0,0 +1,157 @@
+package com.bravebucks.eve.service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import com.bravebucks.eve.DelayService;
+import com.bravebucks.eve.EsiRateLimiter.EsiThrottledException;
+import com.bravebucks.eve.config.ApplicationProperties;
+import com.bravebucks.eve.domain.EveCharacter;
+import com.bravebucks.eve.domain.RattingEntry;
+import com.bravebucks.eve.domain.SolarSystem;
+import com.bravebucks.eve.domain.esi.AdmResponse;
+import com.bravebucks.eve.domain.esi.WalletResponse;
+import com.bravebucks.eve.repository.CharacterRepository;
+import com.bravebucks.eve.repository.RattingEntryRepository;
+import com.bravebucks.eve.repository.SolarSystemRepository;
+import com.codahale.metrics.MetricRegistry;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestTemplate;
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyCollectionOf;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
+import static org.mockito.Mockito.when;
+
+public class WalletParserTest {
+
+    private static final long SYSTEM_ID = 30000142L;
+    private static final int CHARACTERS = 8;
+    private static final int THROTTLED = 3;
+    private static final int UNREACHABLE = 5;
+
+    private RestTemplate restTemplate = mock(RestTemplate.class);
+    private ConditionalGetClient conditionalGetClient = mock(ConditionalGetClient.class);
+    private RattingEntryRepository rattingEntryRepository = mock(RattingEntryRepository.class);
+    private DelayService delayService = mock(DelayService.class);
+    private SolarSystemRepository solarSystemRepository = mock(SolarSystemRepository.class);
+    private CharacterRepository characterRepository = mock(CharacterRepository.class);
+    private AccessTokenCache accessTokenCache = mock(AccessTokenCache.class);
+    private JobRunner jobRunner = mock(JobRunner.class);
+    private MetricRegistry metricRegistry = new MetricRegistry();
+    private WalletParser sut = new WalletParser(restTemplate, new AdmService(conditionalGetClient, jobRunner),
+                                                rattingEntryRepository, delayService, solarSystemRepository,
+                                                characterRepository, accessTokenCache, jobRunner,
+                                                new ApplicationProperties(), metricRegistry);
+
+    @SuppressWarnings("unchecked")
+    private ArgumentCaptor<List<RattingEntry>> inserted = ArgumentCaptor.forClass((Class) List.class);
+
+    @Before
+    public void setUp() {
+        when(jobRunner.run(anyString(), any(Runnable.class))).thenAnswer(invocation -> {
+            ((Runnable) invocation.getArguments()[1]).run();
+            return true;
+        });
+        when(jobRunner.runOnOneNode(anyString(), any(Runnable.class))).thenAnswer(invocation -> {
+            ((Runnable) invocation.getArguments()[1]).run();
+            return true;
+        });
+        when(conditionalGetClient.get(anyString(), eq(AdmResponse[].class))).thenReturn(new AdmResponse[]{adm()});
+        final SolarSystem system = new SolarSystem();
+        system.setSystemId(SYSTEM_ID);
+        when(solarSystemRepository.findAllByTrackRatting(true)).thenReturn(Collections.singletonList(system));
+        when(characterRepository.findByWalletReadRefreshTokenNotNull())
+            .thenReturn(IntStream.rangeClosed(1, CHARACTERS)
+                                 .mapToObj(id -> new EveCharacter(id, "character" + id, "refresh", "user" + id))
+                                 .collect(Collectors.toList()));
+        when(accessTokenCache.getAccessToken(anyInt(), anyString(), anyString(), anyString()))
+            .thenReturn("token");
+        when(rattingEntryRepository.findExistingJournalIds(anyCollectionOf(Long.class)))
+            .thenReturn(Collections.emptySet());
+        when(restTemplate.exchange(anyString(), eq(HttpMethod.GET), any(HttpEntity.class), eq(WalletResponse[].class)))
+            .thenAnswer(invocation -> journal((String) invocation.getArguments()[0]));
+    }
+
+    @After
+    public void tearDown() {
+        sut.stop();
+    }
+
+    /**
+     * The parser threads also miss the ADM cache concurrently, the first miss downloads it.
+     */
+    @Test
+    public void failingCharactersDoNotStopTheOthers() {
+        sut.collectNewJournalEntries();
+
+        verify(rattingEntryRepository, atLeastOnce()).insertIgnoringDuplicates(inserted.capture());
+        final List<Integer> collected = new ArrayList<>();
+        inserted.getAllValues().forEach(entries -> entries.forEach(entry -> {
+            assertEquals(3.5, entry.getAdm(), 0.0);
+            collected.add(entry.getCharacterId());
+        }));
+        assertEquals(collected.toString(), CHARACTERS - 2, collected.size());
+        assertEquals(-1, collected.indexOf(THROTTLED));
+        assertEquals(-1, collected.indexOf(UNREACHABLE));
+        assertEquals(CHARACTERS - 2, meter("processed"));
+        assertEquals(2, meter("failed"));
+    }
+
+    @Test
+    public void skipsCharactersWhileTheErrorBudgetIsLow() {
+        when(delayService.shouldIChill()).thenReturn(true);
+
+        sut.collectNewJournalEntries();
+
+        verifyZeroInteractions(restTemplate);
+        verify(rattingEntryRepository, never()).insertIgnoringDuplicates(any());
+        assertEquals(CHARACTERS, meter("throttled"));
+    }
+
+    private long meter(final String name) {
+        return metricRegistry.meter(MetricRegistry.name(WalletParser.class, name)).getCount();
+    }
+
+    private static ResponseEntity<WalletResponse[]> journal(final String uri) {
+        final int characterId = Integer.parseInt(uri.replaceAll(".*/characters/(\\d+)/.*", "$1"));
+        if (characterId == THROTTLED) {
+            throw new EsiThrottledException("characters");
+        }
+        if (characterId == UNREACHABLE) {
+            throw new ResourceAccessException("timeout");
+        }
+        final WalletResponse bounty = new WalletResponse();
+        bounty.setId(characterId * 10L);
+        bounty.setRefType("bounty_prizes");
+        bounty.setContextId(SYSTEM_ID);
+        bounty.setDate("2018-03-10T12:00:00Z");
+        bounty.setReason("11031: 1");
+        return ResponseEntity.ok(new WalletResponse[]{bounty});
+    }
+
+    private static AdmResponse adm() {
+        final AdmResponse adm = new AdmResponse();
+        adm.setSolarSystemId((int) SYSTEM_ID);
+        adm.setAdm(3.5);
+        return adm;
+    }
+}
@@ -3,6 +3,7 @@ package com.bravebucks.eve.web.rest;
 import com.bravebucks.eve.BraveBucksApp;
 import com.bravebucks.eve.domain.Payout;
 import com.bravebucks.eve.repository.UserRepository;
+import com.bravebucks.eve.service.AccountBalanceService;
 import com.bravebucks.eve.web.rest.errors.ExceptionTranslator;
 
 import com.bravebucks.eve.repository.PayoutRepository;
@@ -83,11 +84,14 @@ public class PayoutResourceIntTest {
     @Autowired
     private UserRepository userRepository;
 
+    @Autowired
+    private AccountBalanceService accountBalanceService;
+
     @Before
     public void setup() {
         MockitoAnnotations.initMocks(this);
         final PayoutResource payoutResource = new PayoutResource(payoutRepository, transactionRepository,
-                                                                 userRepository);
+                                                                 userRepository, accountBalanceService);
         restPayoutMockMvc = MockMvcBuilders.standaloneSetup(payoutResource)
                                            .setCustomArgumentResolvers(pageableArgumentResolver)
                                            .setControllerAdvice(exceptionTranslator)
@@ -4,7 +4,7 @@ import com.bravebucks.eve.BraveBucksApp;
 
 import com.bravebucks.eve.domain.SolarSystem;
 import com.bravebucks.eve.repository.SolarSystemRepository;
-import com.bravebucks.eve.service.JsonRequestService;
+import com.bravebucks.eve.service.EsiSearchClient;
 import com.bravebucks.eve.web.rest.errors.ExceptionTranslator;
 
 import org.junit.Before;
@@ -55,7 +55,7 @@ public class SolarSystemResourceIntTest {
     private ExceptionTranslator exceptionTranslator;
 
     @Autowired
-    private JsonRequestService jsonRequestService;
+    private EsiSearchClient esiSearchClient;
 
     private MockMvc restSolarSystemMockMvc;
 
@@ -65,7 +65,7 @@ public class SolarSystemResourceIntTest {
     public void setup() {
         MockitoAnnotations.initMocks(this);
         final SolarSystemResource solarSystemResource = new SolarSystemResource(solarSystemRepository,
-                                                                                jsonRequestService);
+                                                                                esiSearchClient);
         this.restSolarSystemMockMvc = MockMvcBuilders.standaloneSetup(solarSystemResource)
             .setCustomArgumentResolvers(pageableArgumentResolver)
             .setControllerAdvice(exceptionTranslator)